@@ -0,0 +1,14 @@
+package com.recipemaster.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PopularRecipeDto {
+    private Long id;
+    private String title;
+    private String description;
+    private String category;
+    private long favoriteCount;
+}
@@ -0,0 +1,12 @@
+package com.recipemaster.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ProductSuggestionDto {
+    private Long id;
+    private String name;
+    private String unit;
+}
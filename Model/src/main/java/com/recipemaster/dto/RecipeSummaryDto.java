@@ -0,0 +1,13 @@
+package com.recipemaster.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class RecipeSummaryDto {
+    private Long id;
+    private String title;
+    private String description;
+    private String category;
+}
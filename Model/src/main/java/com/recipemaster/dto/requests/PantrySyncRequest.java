@@ -0,0 +1,18 @@
+package com.recipemaster.dto.requests;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public record PantrySyncRequest(List<Operation> operations) {
+
+    /**
+     * ADD takes {@code name}, {@code unit} and {@code quantity} like adding a single product;
+     * UPDATE takes {@code productId} and the new {@code quantity}; DELETE takes {@code productId}.
+     */
+    public record Operation(Type type, Long productId, String name, BigDecimal quantity, String unit) {
+    }
+
+    public enum Type {
+        ADD, UPDATE, DELETE
+    }
+}
@@ -0,0 +1,8 @@
+package com.recipemaster.dto.responses;
+
+import com.recipemaster.dto.RecipeSummaryDto;
+
+import java.util.List;
+
+public record FavoriteRecipePageResponse(List<RecipeSummaryDto> items, Long nextAfterId) {
+}
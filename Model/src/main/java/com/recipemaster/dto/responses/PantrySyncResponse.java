@@ -0,0 +1,15 @@
+package com.recipemaster.dto.responses;
+
+import com.recipemaster.dto.UserProductInfoDto;
+
+import java.util.List;
+
+public record PantrySyncResponse(int applied, int failed, List<ItemResult> results) {
+
+    /**
+     * Result of the operation at {@code index} in the request. {@code product} holds the quantity after
+     * the whole sync and is null for a deleted product or a failed operation.
+     */
+    public record ItemResult(int index, boolean success, UserProductInfoDto product, String error) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.recipemaster.dto.responses;
+
+import java.time.Instant;
+
+public record ProductReindexStatusResponse(State state,
+                                           String index,
+                                           long total,
+                                           long indexed,
+                                           double docsPerSecond,
+                                           Instant startedAt,
+                                           Instant finishedAt,
+                                           String error) {
+
+    public enum State {
+        IDLE, RUNNING, COMPLETED, FAILED
+    }
+}
@@ -0,0 +1,9 @@
+package com.recipemaster.dto.responses;
+
+import java.util.List;
+
+public record RecipeImportResponse(int imported, int failed, double recipesPerSecond, List<LineError> errors) {
+
+    public record LineError(int line, String message) {
+    }
+}
@@ -0,0 +1,8 @@
+package com.recipemaster.dto.responses;
+
+import com.recipemaster.dto.RecipeDto;
+
+import java.util.List;
+
+public record RecipePageResponse(List<RecipeDto> items, Long nextAfterId) {
+}
@@ -33,7 +33,9 @@ public class UserEntity {
     @JoinTable(
             name = "favorite_recipe",
             joinColumns = @JoinColumn(name = "user_id"),
-            inverseJoinColumns = @JoinColumn(name = "recipe_id")
+            inverseJoinColumns = @JoinColumn(name = "recipe_id"),
+            uniqueConstraints = @UniqueConstraint(
+                    name = "uq_favorite_recipe_user_recipe", columnNames = {"user_id", "recipe_id"})
     )
     private Set<RecipeEntity> favoriteRecipes = new HashSet<>();
 
@@ -8,7 +8,8 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "users_product")
+@Table(name = "users_product", uniqueConstraints = @UniqueConstraint(
+        name = "uq_users_product_user_product", columnNames = {"user_id", "product_id"}))
 @Data
 @NoArgsConstructor
 public class UsersProductEntity {
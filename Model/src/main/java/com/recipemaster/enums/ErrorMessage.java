@@ -11,9 +11,11 @@ public enum ErrorMessage {
     USERS_PRODUCT_NOT_FOUND_BY_ID("Данного продукта нет у указанного пользователя"),
     INCORRECT_PRODUCT_UNIT("Единица измерения продукта указана неверно, используйте: "),
     INCORRECT_PRODUCT_NAME("Продукт с таким названием не найден"),
+    INCORRECT_PRODUCT_QUANTITY("Количество продукта должно быть от 0 до 9999999.999"),
     INCORRECT_USER_DATA("Логин или пароль неверны"),
     INCORRECT_STATUS("Некорректный статус ответа"),
-    FORBIDDEN("Доступ запрещен");
+    FORBIDDEN("Доступ запрещен"),
+    AUTH_OVERLOADED("Сервис авторизации перегружен, повторите попытку позже");
     private final String message;
 
     public String getMessage(Object... args) {
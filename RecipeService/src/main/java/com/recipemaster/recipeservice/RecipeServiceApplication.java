@@ -1,13 +1,24 @@
 package com.recipemaster.recipeservice;
 
 import com.recipemaster.recipeservice.config.ApplicationConfig;
+import com.recipemaster.recipeservice.config.PasswordHashingProperties;
+import com.recipemaster.recipeservice.config.ProductLookupProperties;
+import com.recipemaster.recipeservice.config.ProductOutboxProperties;
+import com.recipemaster.recipeservice.config.ProductReindexProperties;
+import com.recipemaster.recipeservice.config.ProductSuggestProperties;
+import com.recipemaster.recipeservice.config.RecipePopularityProperties;
+import com.recipemaster.recipeservice.config.RecipeSearchProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableConfigurationProperties(ApplicationConfig.class)
+@EnableConfigurationProperties({ApplicationConfig.class, RecipeSearchProperties.class, ProductLookupProperties.class,
+        ProductOutboxProperties.class, ProductReindexProperties.class,
+        ProductSuggestProperties.class, RecipePopularityProperties.class, PasswordHashingProperties.class})
+@EnableScheduling
 @EntityScan("com.recipemaster.entities")
 public class RecipeServiceApplication {
 
@@ -0,0 +1,15 @@
+package com.recipemaster.recipeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Password hashing. BCrypt runs on {@code threads} dedicated threads (all cores when 0) with at most
+ * {@code queueCapacity} waiting requests; beyond that login and registration are rejected with 503.
+ * {@code bcryptStrength} is the log2 cost; existing hashes keep the cost they were created with.
+ */
+@ConfigurationProperties(prefix = "security.password")
+public record PasswordHashingProperties(@DefaultValue("10") int bcryptStrength,
+                                        @DefaultValue("0") int threads,
+                                        @DefaultValue("64") int queueCapacity) {
+}
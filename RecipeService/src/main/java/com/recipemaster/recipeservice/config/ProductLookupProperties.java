@@ -0,0 +1,55 @@
+package com.recipemaster.recipeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "product.lookup")
+public record ProductLookupProperties(@DefaultValue("elasticsearch") Backend backend,
+                                      @DefaultValue Cache cache,
+                                      @DefaultValue Lucene lucene,
+                                      @DefaultValue Breaker breaker) {
+
+    public enum Backend {
+        /** Match names against the remote {@code products} index. */
+        ELASTICSEARCH,
+        /** Match names against an in-process Lucene index built from PostgreSQL at startup. */
+        LUCENE
+    }
+
+    /**
+     * Near-cache of resolved products. Names the search backend had no match for are remembered
+     * for {@code negativeTtl} only, so a product indexed meanwhile is picked up quickly.
+     */
+    public record Cache(@DefaultValue("10000") long maximumSize,
+                        @DefaultValue("1h") Duration ttl,
+                        @DefaultValue("30s") Duration negativeTtl) {
+    }
+
+    /**
+     * Dictionary files for the embedded analyzer; the same ones Elasticsearch mounts for {@code init-index.sh}.
+     * Products created by other instances are picked up every {@code catchUpInterval}; an id that stays
+     * missing for {@code gapTtl} is taken for a rolled back insert.
+     */
+    public record Lucene(@DefaultValue("hunspell/ru_RU") String hunspellDir,
+                         @DefaultValue("ru_RU") String hunspellLocale,
+                         @DefaultValue("synonyms/ru_synonyms.txt") String synonymsFile,
+                         @DefaultValue("5s") Duration catchUpInterval,
+                         @DefaultValue("10m") Duration gapTtl) {
+    }
+
+    /**
+     * Circuit breaker around the search backend. It opens when either the failure rate or the share of calls
+     * slower than {@code slowCallDuration} reaches its threshold over the last {@code slidingWindowSize} calls;
+     * while open, names are matched by trigram similarity in PostgreSQL instead.
+     */
+    public record Breaker(@DefaultValue("50") float failureRateThreshold,
+                          @DefaultValue("50") float slowCallRateThreshold,
+                          @DefaultValue("500ms") Duration slowCallDuration,
+                          @DefaultValue("20") int slidingWindowSize,
+                          @DefaultValue("10") int minimumNumberOfCalls,
+                          @DefaultValue("30s") Duration waitInOpenState,
+                          @DefaultValue("5") int permittedCallsInHalfOpenState) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.recipemaster.recipeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Delivery of product_index_outbox entries to the search backend. A failed entry is retried
+ * after {@code initialBackoff}, doubling per attempt up to {@code maxBackoff}, and is dead-lettered
+ * after {@code maxAttempts} failures.
+ */
+@ConfigurationProperties(prefix = "product.outbox")
+public record ProductOutboxProperties(@DefaultValue("true") boolean enabled,
+                                      @DefaultValue("500") int batchSize,
+                                      @DefaultValue("1s") Duration pollInterval,
+                                      @DefaultValue("1s") Duration initialBackoff,
+                                      @DefaultValue("5m") Duration maxBackoff,
+                                      @DefaultValue("10") int maxAttempts) {
+}
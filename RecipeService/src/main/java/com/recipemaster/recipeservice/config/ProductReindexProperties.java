@@ -0,0 +1,16 @@
+package com.recipemaster.recipeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Full rebuild of the {@code products} index from PostgreSQL. At most {@code maxInFlight} bulk requests
+ * of {@code batchSize} documents are sent concurrently; reading the table waits while all of them are busy.
+ * The HTTP endpoint that starts a rebuild exists only when {@code endpointEnabled} is set, since any
+ * authenticated user could call it.
+ */
+@ConfigurationProperties(prefix = "product.reindex")
+public record ProductReindexProperties(@DefaultValue("1000") int batchSize,
+                                       @DefaultValue("4") int maxInFlight,
+                                       @DefaultValue("false") boolean endpointEnabled) {
+}
@@ -0,0 +1,36 @@
+package com.recipemaster.recipeservice.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ProductSearchBreakerConfig {
+    public static final String BREAKER_NAME = "productSearch";
+
+    /**
+     * State, call outcomes and rejected calls are published as {@code resilience4j.circuitbreaker.*}
+     * meters tagged {@code name=productSearch}.
+     */
+    @Bean
+    public CircuitBreaker productSearchCircuitBreaker(ProductLookupProperties productLookupProperties,
+                                                      MeterRegistry meterRegistry) {
+        ProductLookupProperties.Breaker breaker = productLookupProperties.breaker();
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(breaker.failureRateThreshold())
+                .slowCallRateThreshold(breaker.slowCallRateThreshold())
+                .slowCallDurationThreshold(breaker.slowCallDuration())
+                .slidingWindowSize(breaker.slidingWindowSize())
+                .minimumNumberOfCalls(breaker.minimumNumberOfCalls())
+                .waitDurationInOpenState(breaker.waitInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(breaker.permittedCallsInHalfOpenState())
+                .build();
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry.circuitBreaker(BREAKER_NAME);
+    }
+}
@@ -0,0 +1,15 @@
+package com.recipemaster.recipeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Product name autocomplete. Each trie node keeps {@code maxResults} suggestions; usage counts are
+ * recomputed by a full rebuild every {@code rebuildInterval}, new products are added in between.
+ */
+@ConfigurationProperties(prefix = "product.suggest")
+public record ProductSuggestProperties(@DefaultValue("10") int maxResults,
+                                       @DefaultValue("10m") Duration rebuildInterval) {
+}
@@ -0,0 +1,17 @@
+package com.recipemaster.recipeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Most favorited recipes. {@code topK} recipes are kept overall and per category;
+ * favorite count changes are written to recipe_stats every {@code flushInterval}, and the counts of all
+ * instances are read back every {@code reloadInterval}.
+ */
+@ConfigurationProperties(prefix = "recipe.popularity")
+public record RecipePopularityProperties(@DefaultValue("100") int topK,
+                                         @DefaultValue("30s") Duration flushInterval,
+                                         @DefaultValue("5m") Duration reloadInterval) {
+}
@@ -0,0 +1,43 @@
+package com.recipemaster.recipeservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "recipe.search")
+public record RecipeSearchProperties(@DefaultValue("index") ScoringStrategy scoring,
+                                     @DefaultValue("primitive") ScoringKernel kernel,
+                                     @DefaultValue Cache cache,
+                                     @DefaultValue Parallel parallel) {
+
+    public enum ScoringStrategy {
+        /** Score candidates from the in-memory product index. */
+        INDEX,
+        /** Score with a single aggregate query in PostgreSQL. */
+        DATABASE
+    }
+
+    public enum ScoringKernel {
+        /** BigDecimal scoring over hydrated recipe entities. */
+        LEGACY,
+        /** Allocation-free scoring over the index's primitive recipe vectors. */
+        PRIMITIVE,
+        /** Run both kernels, serve the legacy result and report any disagreement. */
+        COMPARE
+    }
+
+    public record Cache(@DefaultValue("10000") long maximumSize,
+                        @DefaultValue("10m") Duration ttl) {
+    }
+
+    /**
+     * Sharded scoring of large candidate sets. {@code parallelism = 0} means one thread per core;
+     * searches with fewer than {@code threshold} candidates stay on the request thread.
+     */
+    public record Parallel(@DefaultValue("true") boolean enabled,
+                           @DefaultValue("0") int parallelism,
+                           @DefaultValue("20000") int threshold,
+                           @DefaultValue("4") int shardsPerThread) {
+    }
+}
@@ -1,5 +1,6 @@
 package com.recipemaster.recipeservice.controller;
 
+import com.recipemaster.dto.UserDetailsDto;
 import com.recipemaster.dto.UserDto;
 import com.recipemaster.dto.requests.JwtRequest;
 import com.recipemaster.dto.requests.RegistrationRequest;
@@ -7,6 +8,7 @@ import com.recipemaster.dto.responses.JwtResponse;
 import com.recipemaster.enums.ErrorMessage;
 import com.recipemaster.exceptions.AppError;
 import com.recipemaster.recipeservice.service.UserService;
+import com.recipemaster.recipeservice.utils.AuthenticatedUser;
 import com.recipemaster.recipeservice.utils.JwtTokenUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -14,15 +16,17 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
 @RequiredArgsConstructor
 public class AuthController {
@@ -42,6 +46,10 @@ public class AuthController {
             @ApiResponse(
                     responseCode = "401",
                     description = "Неверные учетные данные",
+                    content = @Content(schema = @Schema(implementation = AppError.class))),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Слишком много одновременных входов",
                     content = @Content(schema = @Schema(implementation = AppError.class)))
     })
     @PostMapping("/login")
@@ -52,10 +60,12 @@ public class AuthController {
         } catch (BadCredentialsException e) {
             return new ResponseEntity<>(new AppError(HttpStatus.UNAUTHORIZED.value(),
                     ErrorMessage.INCORRECT_USER_DATA.getMessage()), HttpStatus.UNAUTHORIZED);
+        } catch (RejectedExecutionException e) {
+            return overloaded();
         }
 
-        UserDetails userDetails = userService.loadUserByUsername(jwtRequest.email());
-        String token = jwtTokenUtils.generateToken(userDetails);
+        UserDetailsDto user = userService.findByEmail(jwtRequest.email());
+        String token = jwtTokenUtils.generateToken(new AuthenticatedUser(user.id(), user.email()));
 
         return ResponseEntity.ok(new JwtResponse(token));
 
@@ -74,6 +84,10 @@ public class AuthController {
             @ApiResponse(
                     responseCode = "400",
                     description = "Пользователь уже существует или невалидные данные",
+                    content = @Content(schema = @Schema(implementation = AppError.class))),
+            @ApiResponse(
+                    responseCode = "503",
+                    description = "Слишком много одновременных регистраций",
                     content = @Content(schema = @Schema(implementation = AppError.class)))
     })
     @PostMapping("/register")
@@ -84,8 +98,20 @@ public class AuthController {
         }
 
         UserDto userDTO = new UserDto(registrationRequest.email(), registrationRequest.password(), registrationRequest.fullName());
-        userService.createNewUser(userDTO);
+        UserDetailsDto user;
+        try {
+            user = userService.createNewUser(userDTO);
+        } catch (RejectedExecutionException e) {
+            return overloaded();
+        }
+        // The password was just hashed, authenticating it again would cost a second BCrypt round
+        String token = jwtTokenUtils.generateToken(new AuthenticatedUser(user.id(), user.email()));
+        return ResponseEntity.ok(new JwtResponse(token));
+    }
 
-        return createAuthToken(new JwtRequest(registrationRequest.email(), registrationRequest.password()));
+    private static ResponseEntity<AppError> overloaded() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new AppError(HttpStatus.SERVICE_UNAVAILABLE.value(), ErrorMessage.AUTH_OVERLOADED.getMessage()));
     }
 }
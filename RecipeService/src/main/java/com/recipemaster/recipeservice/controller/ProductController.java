@@ -1,27 +1,30 @@
 package com.recipemaster.recipeservice.controller;
 
+import com.recipemaster.dto.ProductSuggestionDto;
 import com.recipemaster.dto.UserProductInfoDto;
-import com.recipemaster.entities.UserEntity;
+import com.recipemaster.dto.requests.PantrySyncRequest;
+import com.recipemaster.dto.responses.PantrySyncResponse;
 import com.recipemaster.exceptions.AppError;
-import com.recipemaster.recipeservice.service.UserService;
+import com.recipemaster.recipeservice.service.PantrySyncService;
+import com.recipemaster.recipeservice.service.ProductSuggestIndex;
 import com.recipemaster.recipeservice.service.UsersProductService;
-import com.recipemaster.recipeservice.utils.JwtTokenUtils;
+import com.recipemaster.recipeservice.utils.AuthenticatedUser;
 import io.swagger.v3.oas.annotations.Operation;
-import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 
@@ -34,16 +37,8 @@ import java.util.NoSuchElementException;
 @SecurityRequirement(name = "bearerAuth")
 public class ProductController {
     private final UsersProductService usersProductService;
-    private final UserService userService;
-    private final JwtTokenUtils jwtTokenUtils;
-
-
-    private UserEntity getUserFromHeader(String authHeader) {
-        String jwtToken = authHeader.replace("Bearer ", "");
-        String email = jwtTokenUtils.getUsername(jwtToken);
-        return userService.findUserEntityByEmail(email)
-                .orElseThrow(() -> new NoSuchElementException("Пользователь с почтой " + email + " не найден"));
-    }
+    private final ProductSuggestIndex productSuggestIndex;
+    private final PantrySyncService pantrySyncService;
 
     @Operation(
             summary = "Получить список продуктов пользователя",
@@ -55,12 +50,10 @@ public class ProductController {
     })
     @GetMapping()
     public ResponseEntity<?> getUserProducts(
-            @Parameter(description = "JWT токен авторизации", required = true, example = "Bearer eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9...")
-            @RequestHeader("Authorization") String authHeader
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
         try {
-            UserEntity user = getUserFromHeader(authHeader);
-            List<UserProductInfoDto> userProducts = usersProductService.getUserProductsByUserId(user.getId());
+            List<UserProductInfoDto> userProducts = usersProductService.getUserProductsByUserId(user.id());
             return ResponseEntity.ok(userProducts);
         } catch (NoSuchElementException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -68,32 +61,73 @@ public class ProductController {
         }
     }
 
+    @GetMapping("/suggest")
+    @Operation(
+            summary = "Подсказки названий продуктов",
+            description = "Продукты, название или одно из слов названия которых начинается с prefix; самые используемые первыми"
+    )
+    public ResponseEntity<?> suggestProducts(@RequestParam String prefix,
+                                             @RequestParam(defaultValue = "10") int limit) {
+        if (limit <= 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new AppError(HttpStatus.BAD_REQUEST.value(), "Параметр limit должен быть положительным"));
+        }
+        List<ProductSuggestionDto> suggestions = productSuggestIndex.suggest(prefix, limit);
+        return ResponseEntity.ok(suggestions);
+    }
+
     @PostMapping
     @Operation(summary = "Добавить новый продукт в холодильник")
-    public ResponseEntity<?> addProduct(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> addProduct(@AuthenticationPrincipal AuthenticatedUser user,
                                         @RequestBody UserProductInfoDto productInputDto) {
         try {
-            UserEntity user = getUserFromHeader(authHeader);
-            UserProductInfoDto product = usersProductService.addProduct(user.getId(), productInputDto);
+            UserProductInfoDto product = usersProductService.addProduct(user.id(), productInputDto);
             return new ResponseEntity<>(product, HttpStatus.CREATED);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(new AppError(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new AppError(HttpStatus.NOT_FOUND.value(), e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new AppError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Ошибка при добавлении продукта"));
         }
     }
 
+    @PostMapping("/sync")
+    @Operation(
+            summary = "Синхронизировать холодильник пакетом операций",
+            description = "Применяет операции ADD, UPDATE и DELETE в одной транзакции. Ошибочные операции пропускаются и попадают в отчёт"
+    )
+    public ResponseEntity<?> syncProducts(@AuthenticationPrincipal AuthenticatedUser user,
+                                          @RequestBody PantrySyncRequest request) {
+        try {
+            PantrySyncResponse response = pantrySyncService.sync(user.id(), request.operations());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new AppError(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new AppError(HttpStatus.NOT_FOUND.value(), e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new AppError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Ошибка при синхронизации продуктов"));
+        }
+    }
+
     @PutMapping("/{productId}")
     @Operation(summary = "Обновить продукт в холодильнике")
-    public ResponseEntity<?> updateProduct(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> updateProduct(@AuthenticationPrincipal AuthenticatedUser user,
                                            @PathVariable Long productId,
                                            @RequestBody UserProductInfoDto productInputDto) {
         try {
-            UserEntity user = getUserFromHeader(authHeader);
-            UserProductInfoDto updatedProduct = usersProductService.updateProduct(user.getId(), productId, productInputDto);
+            UserProductInfoDto updatedProduct = usersProductService.updateProduct(user.id(), productId, productInputDto);
             return ResponseEntity.ok(updatedProduct);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new AppError(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         } catch (NoSuchElementException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new AppError(HttpStatus.NOT_FOUND.value(), "Продукт не найден"));
@@ -105,11 +139,10 @@ public class ProductController {
 
     @DeleteMapping("/{productId}")
     @Operation(summary = "Удалить продукт из холодильника")
-    public ResponseEntity<?> deleteProduct(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> deleteProduct(@AuthenticationPrincipal AuthenticatedUser user,
                                            @PathVariable Long productId) {
         try {
-            UserEntity user = getUserFromHeader(authHeader);
-            usersProductService.deleteProduct(user.getId(), productId);
+            usersProductService.deleteProduct(user.id(), productId);
             return ResponseEntity.noContent().build();
         } catch (NoSuchElementException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
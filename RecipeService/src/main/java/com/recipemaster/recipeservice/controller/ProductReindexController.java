@@ -0,0 +1,40 @@
+package com.recipemaster.recipeservice.controller;
+
+import com.recipemaster.exceptions.AppError;
+import com.recipemaster.recipeservice.service.ProductReindexService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@ConditionalOnProperty(name = "product.reindex.endpoint-enabled", havingValue = "true")
+@RequestMapping("/secured/admin/products/reindex")
+@RequiredArgsConstructor
+@SecurityRequirement(name = "bearerAuth")
+public class ProductReindexController {
+    private final ProductReindexService productReindexService;
+
+    @PostMapping
+    @Operation(summary = "Запустить полную переиндексацию продуктов в Elasticsearch")
+    public ResponseEntity<?> startReindex() {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(productReindexService.start());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new AppError(HttpStatus.CONFLICT.value(), e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    @Operation(summary = "Получить прогресс переиндексации продуктов")
+    public ResponseEntity<?> getReindexStatus() {
+        return ResponseEntity.ok(productReindexService.getStatus());
+    }
+}
@@ -1,21 +1,32 @@
 package com.recipemaster.recipeservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.recipemaster.dto.PopularRecipeDto;
 import com.recipemaster.dto.RecipeDto;
 import com.recipemaster.dto.RecipeInputDto;
+import com.recipemaster.dto.responses.FavoriteRecipePageResponse;
+import com.recipemaster.dto.responses.RecipeImportResponse;
 import com.recipemaster.dto.responses.RecipeMatchResponse;
+import com.recipemaster.dto.responses.RecipePageResponse;
 import com.recipemaster.entities.RecipeEntity;
-import com.recipemaster.entities.UserEntity;
 import com.recipemaster.exceptions.AppError;
+import com.recipemaster.recipeservice.service.RecipeBulkImportService;
+import com.recipemaster.recipeservice.service.RecipePopularityIndex;
 import com.recipemaster.recipeservice.service.RecipeService;
-import com.recipemaster.recipeservice.service.UserService;
-import com.recipemaster.recipeservice.utils.JwtTokenUtils;
+import com.recipemaster.recipeservice.utils.AuthenticatedUser;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.NoSuchElementException;
 
@@ -25,28 +36,43 @@ import java.util.NoSuchElementException;
 @SecurityRequirement(name = "bearerAuth")
 public class RecipeController {
     private final RecipeService recipeService;
-    private final UserService userService;
-    private final JwtTokenUtils jwtTokenUtils;
-
-    private UserEntity getUserFromHeader(String authHeader) {
-        String jwtToken = authHeader.replace("Bearer ", "");
-        String email = jwtTokenUtils.getUsername(jwtToken);
-        return userService.findUserEntityByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found: " + email));
-    }
+    private final RecipeBulkImportService recipeBulkImportService;
+    private final RecipePopularityIndex recipePopularityIndex;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     @Operation(summary = "Получить список рецептов")
-    public ResponseEntity<?> getAllRecipes(@RequestParam(required = false) String category) {
+    public ResponseEntity<?> getAllRecipes(@RequestParam(required = false) String category,
+                                           @RequestParam(required = false) Long afterId,
+                                           @RequestParam(defaultValue = "50") int size) {
         try {
-            List<RecipeDto> recipes = recipeService.getAllRecipes(category);
-            return ResponseEntity.ok(recipes);
+            RecipePageResponse page = recipeService.getRecipesPage(category, afterId, size);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new AppError(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new AppError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Ошибка при получении рецептов"));
         }
     }
 
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Выгрузить все рецепты построчно в формате NDJSON")
+    public ResponseEntity<StreamingResponseBody> streamRecipes(@RequestParam(required = false) String category) {
+        StreamingResponseBody body = out -> recipeService.streamRecipes(category, recipe -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(recipe));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @PostMapping
     @Operation(summary = "Добавить новый рецепт")
     public ResponseEntity<?> addRecipe(@RequestBody RecipeInputDto recipeInputDto) {
@@ -62,13 +88,50 @@ public class RecipeController {
         }
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Импортировать рецепты из NDJSON, по одному рецепту в строке")
+    public ResponseEntity<?> importRecipesNdjson(InputStream body) {
+        try {
+            RecipeImportResponse report = recipeBulkImportService.importNdjson(body);
+            return ResponseEntity.ok(report);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new AppError(HttpStatus.BAD_REQUEST.value(), "Не удалось прочитать тело запроса"));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new AppError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Ошибка при импорте рецептов"));
+        }
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Импортировать рецепты из JSON-массива")
+    public ResponseEntity<?> importRecipesJson(InputStream body) {
+        try {
+            RecipeImportResponse report = recipeBulkImportService.importJsonArray(body);
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new AppError(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new AppError(HttpStatus.BAD_REQUEST.value(), "Не удалось прочитать тело запроса"));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new AppError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Ошибка при импорте рецептов"));
+        }
+    }
+
     @GetMapping("/search")
     @Operation(summary = "Найти рецепты по продуктам в холодильнике")
-    public ResponseEntity<?> searchRecipes(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> searchRecipes(@AuthenticationPrincipal AuthenticatedUser user,
+                                           @RequestParam(defaultValue = "0") int offset,
+                                           @RequestParam(defaultValue = "5") int limit) {
         try {
-            UserEntity user = getUserFromHeader(authHeader);
-            List<RecipeDto> recipes = recipeService.searchRecipesByUserProducts(user.getId());
+            List<RecipeDto> recipes = recipeService.searchRecipesByUserProducts(user.id(), offset, limit);
             return ResponseEntity.ok(recipes);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new AppError(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         } catch (NoSuchElementException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new AppError(HttpStatus.NOT_FOUND.value(), e.getMessage()));
@@ -78,12 +141,27 @@ public class RecipeController {
         }
     }
 
+    @GetMapping("/popular")
+    @Operation(summary = "Получить самые популярные рецепты")
+    public ResponseEntity<?> getPopularRecipes(@RequestParam(required = false) String category,
+                                               @RequestParam(defaultValue = "10") int limit) {
+        try {
+            List<PopularRecipeDto> recipes = recipePopularityIndex.getPopular(category, limit);
+            return ResponseEntity.ok(recipes);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new AppError(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new AppError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Ошибка при получении популярных рецептов"));
+        }
+    }
+
     @PostMapping("/{recipeId}/favorites")
     @Operation(summary = "Добавить рецепт в избранное")
-    public ResponseEntity<?> addFavorite(@PathVariable Long recipeId, @RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> addFavorite(@PathVariable Long recipeId, @AuthenticationPrincipal AuthenticatedUser user) {
         try {
-            UserEntity user = getUserFromHeader(authHeader);
-            RecipeDto recipe = recipeService.addRecipeToFavorites(user.getId(), recipeId);
+            RecipeDto recipe = recipeService.addRecipeToFavorites(user.id(), recipeId);
             return new ResponseEntity<>(recipe, HttpStatus.CREATED);
         } catch (NoSuchElementException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -96,14 +174,10 @@ public class RecipeController {
 
     @DeleteMapping("/{recipeId}/favorites")
     @Operation(summary = "Удалить рецепт из избранного")
-    public ResponseEntity<?> removeFavorite(@PathVariable Long recipeId, @RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> removeFavorite(@PathVariable Long recipeId, @AuthenticationPrincipal AuthenticatedUser user) {
         try {
-            UserEntity user = getUserFromHeader(authHeader);
-            recipeService.removeRecipeFromFavorites(user.getId(), recipeId);
+            recipeService.removeRecipeFromFavorites(user.id(), recipeId);
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-        } catch (NoSuchElementException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(new AppError(HttpStatus.NOT_FOUND.value(), e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new AppError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Ошибка при удалении из избранного"));
@@ -112,14 +186,30 @@ public class RecipeController {
 
     @GetMapping("/favorites")
     @Operation(summary = "Получить список избранных рецептов пользователя")
-    public ResponseEntity<?> getFavorites(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getFavorites(@AuthenticationPrincipal AuthenticatedUser user,
+                                          @RequestParam(required = false) Long afterId,
+                                          @RequestParam(defaultValue = "50") int size) {
         try {
-            UserEntity user = getUserFromHeader(authHeader);
-            List<RecipeDto> favorites = recipeService.getUserFavorites(user.getId());
+            FavoriteRecipePageResponse favorites = recipeService.getUserFavorites(user.id(), afterId, size);
             return ResponseEntity.ok(favorites);
-        } catch (NoSuchElementException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(new AppError(HttpStatus.NOT_FOUND.value(), e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new AppError(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new AppError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Ошибка при получении избранных рецептов"));
+        }
+    }
+
+    @GetMapping("/favorites/ids")
+    @Operation(summary = "Узнать, какие из переданных рецептов в избранном у пользователя")
+    public ResponseEntity<?> getFavoriteIds(@AuthenticationPrincipal AuthenticatedUser user,
+                                            @RequestParam List<Long> recipeIds) {
+        try {
+            return ResponseEntity.ok(recipeService.getFavoriteIds(user.id(), recipeIds));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new AppError(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new AppError(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Ошибка при получении избранных рецептов"));
@@ -0,0 +1,40 @@
+package com.recipemaster.recipeservice.repository;
+
+import com.recipemaster.entities.ProductIndexOutboxEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ProductIndexOutboxRepository extends JpaRepository<ProductIndexOutboxEntity, Long> {
+
+    /**
+     * Locks the oldest due entries; concurrent dispatchers skip them instead of waiting.
+     */
+    @Query(value = """
+            SELECT * FROM product_index_outbox
+            WHERE dead_lettered_at IS NULL AND next_attempt_at <= now()
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<ProductIndexOutboxEntity> lockDueBatch(@Param("limit") int limit);
+
+    @Query(value = """
+            SELECT count(*) FILTER (WHERE dead_lettered_at IS NULL) AS "pending",
+                   count(*) FILTER (WHERE dead_lettered_at IS NOT NULL) AS "deadLettered",
+                   COALESCE(EXTRACT(EPOCH FROM now() - min(created_at) FILTER (WHERE dead_lettered_at IS NULL)), 0)
+                       AS "lagSeconds"
+            FROM product_index_outbox
+            """, nativeQuery = true)
+    OutboxStats getStats();
+
+    interface OutboxStats {
+        Long getPending();
+
+        Long getDeadLettered();
+
+        Double getLagSeconds();
+    }
+}
@@ -1,11 +1,60 @@
 package com.recipemaster.recipeservice.repository;
 
 import com.recipemaster.entities.ProductEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends CrudRepository<ProductEntity, Long> {
     Optional<ProductEntity> findByName(String productName);
     Optional<ProductEntity> findByNameIgnoreCase(String productName);
+
+    @Query("SELECT p FROM ProductEntity p WHERE LOWER(p.name) IN :names")
+    List<ProductEntity> findAllByLowerNameIn(@Param("names") Collection<String> names);
+
+    List<ProductEntity> findAllByIdGreaterThanOrIdIn(Long id, Collection<Long> ids);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.id AS id, p.name AS name, p.unit AS unit FROM ProductEntity p ORDER BY p.id")
+    Stream<ProductRow> streamAllRows();
+
+    @Query(value = """
+            SELECT p.id AS "id", p.name AS "name", p.unit AS "unit",
+                   COALESCE(i.uses, 0) + COALESCE(up.uses, 0) AS "usage"
+            FROM product p
+            LEFT JOIN (SELECT product_id, count(*) AS uses FROM ingredient GROUP BY product_id) i
+                   ON i.product_id = p.id
+            LEFT JOIN (SELECT product_id, count(*) AS uses FROM users_product GROUP BY product_id) up
+                   ON up.product_id = p.id
+            """, nativeQuery = true)
+    List<ProductUsage> findAllWithUsage();
+
+    interface ProductRow {
+        Long getId();
+
+        String getName();
+
+        String getUnit();
+    }
+
+    interface ProductUsage {
+        Long getId();
+
+        String getName();
+
+        String getUnit();
+
+        Long getUsage();
+    }
 }
@@ -1,10 +1,149 @@
 package com.recipemaster.recipeservice.repository;
 
+import com.recipemaster.dto.RecipeSummaryDto;
 import com.recipemaster.entities.RecipeEntity;
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface RecipeRepository extends JpaRepository<RecipeEntity, Long> {
     List<RecipeEntity> findByCategory(String category);
+
+    @EntityGraph(attributePaths = {"ingredients", "ingredients.product"})
+    List<RecipeEntity> findWithIngredientsByIdIn(Collection<Long> ids);
+
+    @Query("SELECT r.id FROM RecipeEntity r WHERE r.id > :afterId ORDER BY r.id")
+    List<Long> findIdsAfter(@Param("afterId") long afterId, Limit limit);
+
+    @Query("SELECT r.id FROM RecipeEntity r WHERE r.category = :category AND r.id > :afterId ORDER BY r.id")
+    List<Long> findIdsByCategoryAfter(@Param("category") String category, @Param("afterId") long afterId, Limit limit);
+
+    /**
+     * One page of the user's favorites, ordered by recipe id, without loading entities or ingredients.
+     */
+    @Query("""
+            SELECT new com.recipemaster.dto.RecipeSummaryDto(r.id, r.title, r.description, r.category)
+            FROM UserEntity u
+            JOIN u.favoriteRecipes r
+            WHERE u.id = :userId AND r.id > :afterId
+            ORDER BY r.id
+            """)
+    List<RecipeSummaryDto> findFavoritesAfter(@Param("userId") Long userId,
+                                              @Param("afterId") long afterId,
+                                              Limit limit);
+
+    @Query("""
+            SELECT new com.recipemaster.dto.RecipeSummaryDto(r.id, r.title, r.description, r.category)
+            FROM RecipeEntity r
+            WHERE r.id IN :ids
+            """)
+    List<RecipeSummaryDto> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT recipe_id FROM favorite_recipe WHERE user_id = :userId AND recipe_id IN (:recipeIds)",
+            nativeQuery = true)
+    List<Long> findFavoriteIdsIn(@Param("userId") Long userId, @Param("recipeIds") Collection<Long> recipeIds);
+
+    /**
+     * Inserts the favorite_recipe row directly; adding an existing favorite is a no-op
+     * thanks to the unique (user_id, recipe_id) index. Clears the persistence context
+     * so loaded {@code favoriteRecipes} collections are not stale.
+     *
+     * @return 1 if the row was inserted, 0 if it already existed
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+            INSERT INTO favorite_recipe (user_id, recipe_id)
+            VALUES (:userId, :recipeId)
+            ON CONFLICT (user_id, recipe_id) DO NOTHING
+            """, nativeQuery = true)
+    int addFavorite(@Param("userId") Long userId, @Param("recipeId") Long recipeId);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM favorite_recipe WHERE user_id = :userId AND recipe_id = :recipeId", nativeQuery = true)
+    int removeFavorite(@Param("userId") Long userId, @Param("recipeId") Long recipeId);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT r.id AS id, r.title AS title, r.description AS description, r.category AS category,
+                   p.name AS productName, i.quantity AS quantity, p.unit AS unit
+            FROM RecipeEntity r
+            LEFT JOIN r.ingredients i
+            LEFT JOIN i.product p
+            WHERE :category IS NULL OR r.category = :category
+            ORDER BY r.id, i.id
+            """)
+    Stream<RecipeRow> streamRecipeRows(@Param("category") String category);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            SELECT i.recipe.id AS recipeId, i.product.id AS productId, i.quantity AS quantity
+            FROM IngredientEntity i
+            ORDER BY i.recipe.id, i.id
+            """)
+    Stream<RecipeProductLink> streamAllRecipeProductLinks();
+
+    @Query(value = """
+            SELECT i.recipe_id AS "recipeId",
+                   SUM(LEAST(1, CAST(up.quantity AS double precision) / CAST(i.quantity AS double precision))) AS "score"
+            FROM ingredient i
+            JOIN (SELECT product_id, SUM(quantity) AS quantity
+                  FROM users_product
+                  WHERE user_id = :userId
+                  GROUP BY product_id) up ON up.product_id = i.product_id
+            WHERE i.quantity > 0
+            GROUP BY i.recipe_id
+            HAVING SUM(LEAST(1, CAST(up.quantity AS double precision) / CAST(i.quantity AS double precision))) > 0
+            ORDER BY "score" DESC, i.recipe_id
+            LIMIT :limit OFFSET :offset
+            """, nativeQuery = true)
+    List<RecipeScore> findTopMatchesByUserId(@Param("userId") Long userId,
+                                             @Param("limit") int limit,
+                                             @Param("offset") int offset);
+
+    interface RecipeScore {
+        Long getRecipeId();
+
+        Double getScore();
+    }
+
+    interface RecipeRow {
+        Long getId();
+
+        String getTitle();
+
+        String getDescription();
+
+        String getCategory();
+
+        String getProductName();
+
+        BigDecimal getQuantity();
+
+        String getUnit();
+    }
+
+    interface RecipeProductLink {
+        Long getRecipeId();
+
+        Long getProductId();
+
+        BigDecimal getQuantity();
+    }
 }
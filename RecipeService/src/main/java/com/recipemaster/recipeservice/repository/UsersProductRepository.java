@@ -1,5 +1,6 @@
 package com.recipemaster.recipeservice.repository;
 
+import com.recipemaster.dto.UserProductInfoDto;
 import com.recipemaster.entities.UsersProductEntity;
 import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.Modifying;
@@ -16,9 +17,38 @@ import java.util.Optional;
 public interface UsersProductRepository extends CrudRepository<UsersProductEntity, Long> {
     List<UsersProductEntity> findAllByUserId(Long userId);
 
+    /**
+     * The user's pantry in one users_product JOIN product query, without loading entities.
+     */
+    @Query("""
+            SELECT new com.recipemaster.dto.UserProductInfoDto(p.id, p.name, up.quantity, p.unit)
+            FROM UsersProductEntity up
+            JOIN up.product p
+            WHERE up.user.id = :userId
+            ORDER BY up.id
+            """)
+    List<UserProductInfoDto> findProductInfoByUserId(@Param("userId") Long userId);
+
     @Query("SELECT up FROM UsersProductEntity up WHERE up.user.id = :userId AND up.product.id = :productId")
     Optional<UsersProductEntity> findProductById(Long userId, Long productId);
 
+    /**
+     * Adds {@code quantity} to the user's stock of the product, creating the row if needed, in one statement.
+     * Concurrent additions of the same product are serialized by the unique (user_id, product_id) index.
+     *
+     * @return the quantity after the addition
+     */
+    @Transactional
+    @Query(value = """
+            INSERT INTO users_product (user_id, product_id, quantity)
+            VALUES (:userId, :productId, :quantity)
+            ON CONFLICT (user_id, product_id) DO UPDATE SET quantity = users_product.quantity + EXCLUDED.quantity
+            RETURNING quantity
+            """, nativeQuery = true)
+    BigDecimal addQuantity(@Param("userId") Long userId,
+                           @Param("productId") Long productId,
+                           @Param("quantity") BigDecimal quantity);
+
     @Transactional
     @Modifying
     @Query("DELETE FROM UsersProductEntity up WHERE up.user.id = :userId AND up.product.id = :productId")
@@ -0,0 +1,118 @@
+package com.recipemaster.recipeservice.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.recipemaster.ProductElasticDocument;
+import com.recipemaster.entities.ProductEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "product.lookup.backend", havingValue = "elasticsearch", matchIfMissing = true)
+public class ElasticProductSearchBackend implements ProductSearchBackend {
+    private static final String PRODUCTS_INDEX = "products";
+    // Keeps each msearch request and its response small enough for the cluster's search queue
+    private static final int MSEARCH_BATCH_SIZE = 200;
+
+    private final ElasticsearchClient elasticsearchClient;
+
+    @Override
+    public Map<String, String> findMatchingNames(List<String> names) {
+        Map<String, String> matched = new HashMap<>();
+        for (int from = 0; from < names.size(); from += MSEARCH_BATCH_SIZE) {
+            List<String> batch = names.subList(from, Math.min(from + MSEARCH_BATCH_SIZE, names.size()));
+            matched.putAll(search(batch));
+        }
+        return matched;
+    }
+
+    private Map<String, String> search(List<String> names) {
+        MsearchRequest.Builder request = new MsearchRequest.Builder();
+        for (String name : names) {
+            request.searches(s -> s
+                    .header(h -> h.index(PRODUCTS_INDEX))
+                    .body(b -> b
+                            .size(1)
+                            .query(q -> q
+                                    .match(m -> m
+                                            .field("name")
+                                            .query(name)
+                                    )
+                            )
+                    )
+            );
+        }
+        try {
+            MsearchResponse<ProductElasticDocument> response =
+                    elasticsearchClient.msearch(request.build(), ProductElasticDocument.class);
+            Map<String, String> matched = new HashMap<>();
+            List<MultiSearchResponseItem<ProductElasticDocument>> items = response.responses();
+            for (int i = 0; i < items.size(); i++) {
+                MultiSearchResponseItem<ProductElasticDocument> item = items.get(i);
+                if (item.isFailure()) {
+                    throw new RuntimeException("Ошибка при поиске в Elasticsearch: " + item.failure().error().reason());
+                }
+                List<Hit<ProductElasticDocument>> hits = item.result().hits().hits();
+                if (!hits.isEmpty() && hits.getFirst().source() != null) {
+                    matched.put(names.get(i), hits.getFirst().source().getName());
+                }
+            }
+            return matched;
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка при поиске в Elasticsearch", e);
+        }
+    }
+
+    @Override
+    public Map<Long, String> index(List<ProductEntity> products) {
+        if (products.isEmpty()) {
+            return Map.of();
+        }
+        BulkRequest.Builder request = new BulkRequest.Builder();
+        for (ProductEntity product : products) {
+            ProductElasticDocument doc = buildDocument(product);
+            request.operations(op -> op
+                    .index(i -> i
+                            .index(PRODUCTS_INDEX)
+                            .id(doc.getId())
+                            .document(doc)
+                    )
+            );
+        }
+        try {
+            BulkResponse response = elasticsearchClient.bulk(request.build());
+            Map<Long, String> failures = new HashMap<>();
+            if (response.errors()) {
+                for (BulkResponseItem item : response.items()) {
+                    if (item.error() != null) {
+                        failures.put(Long.valueOf(item.id()), item.error().reason());
+                    }
+                }
+            }
+            return failures;
+        } catch (IOException e) {
+            throw new RuntimeException("Ошибка при индексации в Elasticsearch", e);
+        }
+    }
+
+    private ProductElasticDocument buildDocument(ProductEntity product) {
+        ProductElasticDocument doc = new ProductElasticDocument();
+        doc.setId(product.getId().toString());
+        doc.setName(product.getName());
+        doc.setUnit(product.getUnit());
+        return doc;
+    }
+}
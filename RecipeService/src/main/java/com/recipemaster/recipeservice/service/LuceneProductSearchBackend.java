@@ -0,0 +1,263 @@
+package com.recipemaster.recipeservice.service;
+
+import com.recipemaster.entities.ProductEntity;
+import com.recipemaster.recipeservice.config.ProductLookupProperties;
+import com.recipemaster.recipeservice.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.FlattenGraphFilter;
+import org.apache.lucene.analysis.hunspell.Dictionary;
+import org.apache.lucene.analysis.hunspell.HunspellStemFilter;
+import org.apache.lucene.analysis.ru.RussianAnalyzer;
+import org.apache.lucene.analysis.snowball.SnowballFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.synonym.SolrSynonymParser;
+import org.apache.lucene.analysis.synonym.SynonymGraphFilter;
+import org.apache.lucene.analysis.synonym.SynonymMap;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.QueryBuilder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.tartarus.snowball.ext.RussianStemmer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-process replacement for the Elasticsearch {@code products} index. The analyzer mirrors
+ * {@code ru_product_analyzer} from {@code init-index.sh} and is built from the same hunspell and synonym files.
+ * The index lives in memory and is rebuilt from PostgreSQL on startup. Products this instance creates are
+ * indexed right after commit, the ones other instances create by {@link #catchUp()}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "product.lookup.backend", havingValue = "lucene")
+public class LuceneProductSearchBackend implements ProductSearchBackend {
+    private static final String ID = "id";
+    private static final String NAME = "name";
+    private static final String UNIT = "unit";
+    private static final int MAX_TRACKED_GAPS = 10_000;
+
+    private final ProductRepository productRepository;
+    private final Duration gapTtl;
+    private final Analyzer searchAnalyzer;
+    private final Directory directory = new ByteBuffersDirectory();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    // Guarded by this; the highest product id read so far and the missing ids below it, with when they went missing
+    private long indexedUpTo;
+    private final Map<Long, Instant> gaps = new HashMap<>();
+
+    public LuceneProductSearchBackend(ProductLookupProperties productLookupProperties,
+                                      ProductRepository productRepository) throws IOException {
+        this.productRepository = productRepository;
+        ProductLookupProperties.Lucene config = productLookupProperties.lucene();
+        this.gapTtl = config.gapTtl();
+        Dictionary dictionary = loadDictionary(Path.of(config.hunspellDir()), config.hunspellLocale());
+        SynonymMap synonyms = loadSynonyms(Path.of(config.synonymsFile()), dictionary);
+        this.searchAnalyzer = new ProductAnalyzer(dictionary, synonyms, false);
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(new ProductAnalyzer(dictionary, synonyms, true)));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        List<ProductEntity> products = new ArrayList<>();
+        productRepository.findAll().forEach(products::add);
+        try {
+            writer.deleteAll();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        indexedUpTo = 0;
+        gaps.clear();
+        index(products);
+        advance(products);
+        log.info("Lucene product index rebuilt: {} products", products.size());
+    }
+
+    /**
+     * Indexes the products committed since the last pass. An id allocated before that pass but committed
+     * after it is a gap below the high-water mark, so gaps are read again until they fill or expire.
+     */
+    @Scheduled(initialDelayString = "${product.lookup.lucene.catch-up-interval:5s}",
+            fixedDelayString = "${product.lookup.lucene.catch-up-interval:5s}")
+    public synchronized void catchUp() {
+        List<ProductEntity> products = productRepository.findAllByIdGreaterThanOrIdIn(indexedUpTo,
+                Set.copyOf(gaps.keySet()));
+        index(products);
+        advance(products);
+    }
+
+    @Override
+    public void productsStored(List<ProductEntity> products) {
+        index(products);
+    }
+
+    private void advance(List<ProductEntity> products) {
+        Instant now = Instant.now();
+        Set<Long> seen = new HashSet<>();
+        long upTo = indexedUpTo;
+        for (ProductEntity product : products) {
+            seen.add(product.getId());
+            upTo = Math.max(upTo, product.getId());
+        }
+        gaps.keySet().removeAll(seen);
+        Instant expired = now.minus(gapTtl);
+        gaps.values().removeIf(since -> since.isBefore(expired));
+        for (long id = Math.max(indexedUpTo, upTo - MAX_TRACKED_GAPS) + 1;
+             id < upTo && gaps.size() < MAX_TRACKED_GAPS; id++) {
+            if (!seen.contains(id)) {
+                gaps.put(id, now);
+            }
+        }
+        indexedUpTo = upTo;
+    }
+
+    @Override
+    public Map<String, String> findMatchingNames(List<String> names) {
+        if (names.isEmpty()) {
+            return Map.of();
+        }
+        QueryBuilder queryBuilder = new QueryBuilder(searchAnalyzer);
+        Map<String, String> matched = new HashMap<>();
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                for (String name : names) {
+                    Query query = queryBuilder.createBooleanQuery(NAME, name);
+                    if (query == null) {
+                        continue;
+                    }
+                    TopDocs top = searcher.search(query, 1);
+                    if (top.scoreDocs.length > 0) {
+                        matched.put(name, searcher.storedFields().document(top.scoreDocs[0].doc).get(NAME));
+                    }
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return matched;
+    }
+
+    @Override
+    public Map<Long, String> index(List<ProductEntity> products) {
+        if (products.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            for (ProductEntity product : products) {
+                Document doc = new Document();
+                doc.add(new StringField(ID, product.getId().toString(), Field.Store.YES));
+                doc.add(new TextField(NAME, product.getName(), Field.Store.YES));
+                if (product.getUnit() != null) {
+                    doc.add(new StoredField(UNIT, product.getUnit()));
+                }
+                writer.updateDocument(new Term(ID, product.getId().toString()), doc);
+            }
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Map.of();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private static Dictionary loadDictionary(Path dir, String locale) throws IOException {
+        try (InputStream affix = Files.newInputStream(dir.resolve(locale + ".aff"));
+             InputStream words = Files.newInputStream(dir.resolve(locale + ".dic"));
+             Directory scratch = new ByteBuffersDirectory()) {
+            return new Dictionary(scratch, "hunspell", affix, words);
+        } catch (ParseException e) {
+            throw new IOException("Некорректный словарь hunspell " + dir, e);
+        }
+    }
+
+    private static SynonymMap loadSynonyms(Path file, Dictionary dictionary) throws IOException {
+        try (Analyzer beforeSynonyms = new ProductAnalyzer(dictionary, null, false);
+             Reader rules = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            SolrSynonymParser parser = new SolrSynonymParser(true, true, beforeSynonyms);
+            parser.parse(rules);
+            return parser.build();
+        } catch (ParseException e) {
+            throw new IOException("Некорректный файл синонимов " + file, e);
+        }
+    }
+
+    /**
+     * standard tokenizer -> lowercase -> russian stop -> hunspell -> synonym graph -> russian snowball.
+     * The index-time variant flattens the synonym graph, as Lucene requires for indexing.
+     */
+    private static final class ProductAnalyzer extends Analyzer {
+        private final Dictionary dictionary;
+        private final SynonymMap synonyms;
+        private final boolean indexing;
+
+        private ProductAnalyzer(Dictionary dictionary, SynonymMap synonyms, boolean indexing) {
+            this.dictionary = dictionary;
+            this.synonyms = synonyms;
+            this.indexing = indexing;
+        }
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer source = new StandardTokenizer();
+            TokenStream stream = new LowerCaseFilter(source);
+            stream = new StopFilter(stream, RussianAnalyzer.getDefaultStopSet());
+            stream = new HunspellStemFilter(stream, dictionary, true);
+            if (synonyms == null) {
+                return new TokenStreamComponents(source, stream);
+            }
+            stream = new SynonymGraphFilter(stream, synonyms, true);
+            if (indexing) {
+                stream = new FlattenGraphFilter(stream);
+            }
+            stream = new SnowballFilter(stream, new RussianStemmer());
+            return new TokenStreamComponents(source, stream);
+        }
+    }
+}
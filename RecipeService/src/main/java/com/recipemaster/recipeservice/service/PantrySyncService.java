@@ -0,0 +1,306 @@
+package com.recipemaster.recipeservice.service;
+
+import com.recipemaster.dto.UserProductInfoDto;
+import com.recipemaster.dto.requests.PantrySyncRequest.Operation;
+import com.recipemaster.dto.requests.PantrySyncRequest.Type;
+import com.recipemaster.dto.responses.PantrySyncResponse;
+import com.recipemaster.entities.ProductEntity;
+import com.recipemaster.enums.ErrorMessage;
+import com.recipemaster.recipeservice.repository.ProductRepository;
+import com.recipemaster.recipeservice.utils.Quantities;
+import com.recipemaster.recipeservice.utils.SqlErrors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Applies a batch of pantry edits made offline. Product names are resolved in one batch, operations on the same
+ * product are folded in request order into a single change, and all changes are written in one transaction
+ * with one statement per kind of change. Invalid operations are reported and skipped.
+ */
+@Service
+@RequiredArgsConstructor
+public class PantrySyncService {
+    public static final int MAX_OPERATIONS = 1000;
+
+    private static final String ADD_SQL = """
+            INSERT INTO users_product (user_id, product_id, quantity)
+            SELECT ?, * FROM unnest(?::bigint[], ?::numeric[])
+            ON CONFLICT (user_id, product_id) DO UPDATE SET quantity = users_product.quantity + EXCLUDED.quantity
+            RETURNING product_id, quantity
+            """;
+    private static final String SET_SQL = """
+            INSERT INTO users_product (user_id, product_id, quantity)
+            SELECT ?, * FROM unnest(?::bigint[], ?::numeric[])
+            ON CONFLICT (user_id, product_id) DO UPDATE SET quantity = EXCLUDED.quantity
+            RETURNING product_id, quantity
+            """;
+    // Unlike SET_SQL never inserts: UPDATE of a product missing from the pantry fails, as PUT does
+    private static final String UPDATE_SQL = """
+            WITH d AS (SELECT ?::bigint AS user_id, * FROM unnest(?::bigint[], ?::numeric[]) AS d(product_id, quantity))
+            UPDATE users_product up SET quantity = d.quantity
+            FROM d
+            WHERE up.user_id = d.user_id AND up.product_id = d.product_id
+            RETURNING up.product_id, up.quantity
+            """;
+    private static final String DELETE_SQL = "DELETE FROM users_product WHERE user_id = ? AND product_id = ANY(?::bigint[])";
+
+    private final ProductElasticService productElasticService;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RecipeSearchCache recipeSearchCache;
+
+    public PantrySyncResponse sync(Long userId, List<Operation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("Список операций пуст");
+        }
+        if (operations.size() > MAX_OPERATIONS) {
+            throw new IllegalArgumentException("За один запрос можно передать не больше " + MAX_OPERATIONS + " операций");
+        }
+        int size = operations.size();
+        String[] errors = new String[size];
+        for (int i = 0; i < size; i++) {
+            errors[i] = validate(operations.get(i));
+        }
+
+        ProductEntity[] products = resolveProducts(operations, errors);
+        Map<Long, Change> changes = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            if (errors[i] == null) {
+                changes.computeIfAbsent(products[i].getId(), Change::new).apply(operations.get(i));
+            }
+        }
+        Map<Long, BigDecimal> quantities;
+        try {
+            quantities = changes.isEmpty()
+                    ? Map.of()
+                    : transactionTemplate.execute(status -> apply(userId, changes.values()));
+        } catch (DataIntegrityViolationException e) {
+            if (SqlErrors.isForeignKeyViolation(e, "user_id")) {
+                // The user was deleted after the token was issued
+                throw new NoSuchElementException(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(userId));
+            }
+            if (SqlErrors.isNumericOutOfRange(e)) {
+                // A sum of valid quantities does not fit the column
+                throw new IllegalArgumentException(ErrorMessage.INCORRECT_PRODUCT_QUANTITY.getMessage());
+            }
+            throw e;
+        }
+        if (!changes.isEmpty()) {
+            recipeSearchCache.invalidateUser(userId);
+        }
+        for (int i = 0; i < size; i++) {
+            if (errors[i] == null) {
+                Change change = changes.get(products[i].getId());
+                if (change.updatesExisting && !quantities.containsKey(change.productId)) {
+                    errors[i] = ErrorMessage.USERS_PRODUCT_NOT_FOUND_BY_ID.getMessage();
+                }
+            }
+        }
+
+        List<PantrySyncResponse.ItemResult> results = new ArrayList<>(size);
+        int failed = 0;
+        for (int i = 0; i < size; i++) {
+            if (errors[i] != null) {
+                failed++;
+                results.add(new PantrySyncResponse.ItemResult(i, false, null, errors[i]));
+                continue;
+            }
+            ProductEntity product = products[i];
+            BigDecimal quantity = quantities.get(product.getId());
+            UserProductInfoDto info = quantity == null
+                    ? null
+                    : new UserProductInfoDto(product.getId(), product.getName(), quantity, product.getUnit());
+            results.add(new PantrySyncResponse.ItemResult(i, true, info, null));
+        }
+        return new PantrySyncResponse(size - failed, failed, results);
+    }
+
+    private static String validate(Operation operation) {
+        if (operation == null || operation.type() == null) {
+            return "Не указан тип операции";
+        }
+        return switch (operation.type()) {
+            case ADD -> {
+                if (operation.name() == null || operation.name().isBlank()) {
+                    yield "Название продукта обязательно";
+                }
+                if (operation.quantity() == null || operation.quantity().signum() <= 0) {
+                    yield "Количество должно быть положительным";
+                }
+                if (!Quantities.fitsColumn(operation.quantity())) {
+                    yield ErrorMessage.INCORRECT_PRODUCT_QUANTITY.getMessage();
+                }
+                yield null;
+            }
+            case UPDATE -> {
+                if (operation.productId() == null) {
+                    yield "Не указан id продукта";
+                }
+                if (operation.quantity() == null || operation.quantity().signum() < 0) {
+                    yield "Количество не может быть отрицательным";
+                }
+                if (!Quantities.fitsColumn(operation.quantity())) {
+                    yield ErrorMessage.INCORRECT_PRODUCT_QUANTITY.getMessage();
+                }
+                yield null;
+            }
+            case DELETE -> operation.productId() == null ? "Не указан id продукта" : null;
+        };
+    }
+
+    /**
+     * Names of ADD operations go through one {@link ProductElasticService#findOrCreateAll} call,
+     * ids of UPDATE and DELETE operations through one query. Unresolvable operations get an error.
+     */
+    private ProductEntity[] resolveProducts(List<Operation> operations, String[] errors) {
+        List<ProductElasticService.ProductKey> keys = new ArrayList<>();
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < operations.size(); i++) {
+            if (errors[i] != null) {
+                continue;
+            }
+            Operation operation = operations.get(i);
+            if (operation.type() == Type.ADD) {
+                keys.add(new ProductElasticService.ProductKey(operation.name().toLowerCase(), operation.unit()));
+            } else {
+                ids.add(operation.productId());
+            }
+        }
+        Map<String, ProductEntity> byName = keys.isEmpty() ? Map.of() : productElasticService.findOrCreateAll(keys);
+        Map<Long, ProductEntity> byId = new HashMap<>();
+        if (!ids.isEmpty()) {
+            productRepository.findAllById(ids).forEach(product -> byId.put(product.getId(), product));
+        }
+
+        ProductEntity[] products = new ProductEntity[operations.size()];
+        for (int i = 0; i < operations.size(); i++) {
+            if (errors[i] != null) {
+                continue;
+            }
+            Operation operation = operations.get(i);
+            if (operation.type() == Type.ADD) {
+                ProductEntity product = byName.get(operation.name().toLowerCase());
+                if (product.getUnit() != null && !product.getUnit().equals(operation.unit())) {
+                    errors[i] = ErrorMessage.INCORRECT_PRODUCT_UNIT.getMessage() + product.getUnit();
+                    continue;
+                }
+                products[i] = product;
+            } else {
+                products[i] = byId.get(operation.productId());
+                if (products[i] == null) {
+                    errors[i] = ErrorMessage.USERS_PRODUCT_NOT_FOUND_BY_ID.getMessage();
+                }
+            }
+        }
+        return products;
+    }
+
+    /**
+     * @return quantity after the sync for every product that still is in the pantry
+     */
+    private Map<Long, BigDecimal> apply(Long userId, Collection<Change> changes) {
+        List<Change> additions = new ArrayList<>();
+        List<Change> assignments = new ArrayList<>();
+        List<Change> updates = new ArrayList<>();
+        List<Long> deletions = new ArrayList<>();
+        for (Change change : changes) {
+            switch (change.kind) {
+                case ADD -> additions.add(change);
+                case SET -> (change.updatesExisting ? updates : assignments).add(change);
+                case DELETE -> deletions.add(change.productId);
+            }
+        }
+        Map<Long, BigDecimal> quantities = new HashMap<>();
+        upsert(ADD_SQL, userId, additions, quantities);
+        upsert(SET_SQL, userId, assignments, quantities);
+        upsert(UPDATE_SQL, userId, updates, quantities);
+        if (!deletions.isEmpty()) {
+            Long[] productIds = deletions.toArray(Long[]::new);
+            jdbcTemplate.update(DELETE_SQL, ps -> {
+                ps.setLong(1, userId);
+                ps.setArray(2, ps.getConnection().createArrayOf("bigint", productIds));
+            });
+        }
+        return quantities;
+    }
+
+    private void upsert(String sql, Long userId, List<Change> changes, Map<Long, BigDecimal> quantities) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Long[] productIds = new Long[changes.size()];
+        BigDecimal[] amounts = new BigDecimal[changes.size()];
+        for (int i = 0; i < changes.size(); i++) {
+            productIds[i] = changes.get(i).productId;
+            amounts[i] = changes.get(i).quantity;
+        }
+        jdbcTemplate.query(sql,
+                        ps -> {
+                            ps.setLong(1, userId);
+                            ps.setArray(2, ps.getConnection().createArrayOf("bigint", productIds));
+                            ps.setArray(3, ps.getConnection().createArrayOf("numeric", amounts));
+                        },
+                        (rs, rowNum) -> Map.entry(rs.getLong("product_id"), rs.getBigDecimal("quantity")))
+                .forEach(row -> quantities.put(row.getKey(), row.getValue()));
+    }
+
+    /**
+     * Net effect of a product's operations in request order. The stored quantity is unknown here, so additions
+     * stay relative until an UPDATE or DELETE pins the value: ADD after UPDATE adds to the set value,
+     * ADD after DELETE starts from zero. When UPDATE comes first and no DELETE follows, the product must already
+     * be in the pantry; if it is not, every operation on the product is rejected.
+     */
+    private static final class Change {
+        private final long productId;
+        private Kind kind = Kind.ADD;
+        private BigDecimal quantity = BigDecimal.ZERO;
+        private boolean updatesExisting;
+        private boolean applied;
+
+        private Change(long productId) {
+            this.productId = productId;
+        }
+
+        private void apply(Operation operation) {
+            switch (operation.type()) {
+                case ADD -> {
+                    if (kind == Kind.DELETE) {
+                        kind = Kind.SET;
+                        quantity = BigDecimal.ZERO;
+                    }
+                    quantity = quantity.add(operation.quantity());
+                }
+                case UPDATE -> {
+                    updatesExisting = updatesExisting || !applied;
+                    kind = Kind.SET;
+                    quantity = operation.quantity();
+                }
+                case DELETE -> {
+                    kind = Kind.DELETE;
+                    quantity = BigDecimal.ZERO;
+                    updatesExisting = false;
+                }
+            }
+            applied = true;
+        }
+    }
+
+    private enum Kind {
+        ADD, SET, DELETE
+    }
+}
@@ -0,0 +1,62 @@
+package com.recipemaster.recipeservice.service;
+
+import com.recipemaster.recipeservice.config.RecipeSearchProperties;
+import com.recipemaster.recipeservice.utils.LongDoubleHashMap;
+import com.recipemaster.recipeservice.utils.ScoredIdTopK;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Splits candidate slots into contiguous shards, scores them on a dedicated fork-join pool
+ * and merges the per-shard top-K heaps.
+ */
+@Component
+public class ParallelRecipeScorer {
+    private final RecipeSearchProperties.Parallel config;
+    private final ForkJoinPool pool;
+
+    public ParallelRecipeScorer(RecipeSearchProperties recipeSearchProperties) {
+        this.config = recipeSearchProperties.parallel();
+        int parallelism = config.parallelism() > 0
+                ? config.parallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism, ParallelRecipeScorer::newWorker, null, false);
+    }
+
+    public boolean shouldParallelize(RecipeProductIndex.Candidates candidates) {
+        return config.enabled() && pool.getParallelism() > 1 && candidates.size() >= config.threshold();
+    }
+
+    public ScoredIdTopK rank(RecipeProductIndex.Candidates candidates, LongDoubleHashMap pantry, int window) {
+        int slotCount = candidates.slots().length();
+        int shardCount = Math.max(1, Math.min(slotCount, pool.getParallelism() * config.shardsPerThread()));
+        List<ForkJoinTask<ScoredIdTopK>> shards = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int from = (int) ((long) slotCount * shard / shardCount);
+            int to = (int) ((long) slotCount * (shard + 1) / shardCount);
+            shards.add(pool.submit(() -> PrimitiveRecipeScorer.rank(candidates, pantry, from, to, window)));
+        }
+        ScoredIdTopK merged = new ScoredIdTopK(window);
+        for (ForkJoinTask<ScoredIdTopK> shard : shards) {
+            merged.addAll(shard.join());
+        }
+        return merged;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("recipe-scoring-" + thread.getPoolIndex());
+        return thread;
+    }
+}
@@ -0,0 +1,65 @@
+package com.recipemaster.recipeservice.service;
+
+import com.recipemaster.recipeservice.utils.LongDoubleHashMap;
+import com.recipemaster.recipeservice.utils.ScoredIdTopK;
+
+import java.math.BigDecimal;
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * Allocation-free scoring over {@link RecipeProductIndex.RecipeVector}s.
+ * Mirrors {@code RecipeService.calculateMatchedCount}, including the compensated summation
+ * used by {@code DoubleStream.sum()}, so both kernels produce bit-identical scores.
+ */
+public final class PrimitiveRecipeScorer {
+
+    private PrimitiveRecipeScorer() {
+    }
+
+    public static LongDoubleHashMap toPantryVector(Map<Long, BigDecimal> userPantry) {
+        LongDoubleHashMap pantry = new LongDoubleHashMap(userPantry.size());
+        userPantry.forEach((productId, quantity) -> pantry.put(productId, quantity.doubleValue()));
+        return pantry;
+    }
+
+    /**
+     * Scores candidate slots in {@code [fromSlot, toSlot)} and keeps the best {@code window} of them.
+     */
+    public static ScoredIdTopK rank(RecipeProductIndex.Candidates candidates,
+                                    LongDoubleHashMap pantry,
+                                    int fromSlot,
+                                    int toSlot,
+                                    int window) {
+        RecipeProductIndex.RecipeVector[] recipes = candidates.recipes();
+        BitSet slots = candidates.slots();
+        ScoredIdTopK top = new ScoredIdTopK(window);
+        for (int slot = slots.nextSetBit(fromSlot); slot >= 0 && slot < toSlot; slot = slots.nextSetBit(slot + 1)) {
+            RecipeProductIndex.RecipeVector recipe = recipes[slot];
+            double matchedCount = score(recipe, pantry);
+            if (matchedCount > 0) {
+                top.offer(recipe.recipeId(), matchedCount);
+            }
+        }
+        return top;
+    }
+
+    public static double score(RecipeProductIndex.RecipeVector recipe, LongDoubleHashMap pantry) {
+        long[] productIds = recipe.productIds();
+        double[] quantities = recipe.quantities();
+        double sum = 0;
+        double compensation = 0;
+        double simpleSum = 0;
+        for (int i = 0; i < productIds.length; i++) {
+            double needed = quantities[i];
+            double term = needed <= 0 ? 0d : Math.min(1d, pantry.get(productIds[i], 0d) / needed);
+            double corrected = term - compensation;
+            double next = sum + corrected;
+            compensation = (next - sum) - corrected;
+            sum = next;
+            simpleSum += term;
+        }
+        double result = sum - compensation;
+        return Double.isNaN(result) && Double.isInfinite(simpleSum) ? simpleSum : result;
+    }
+}
@@ -1,89 +1,273 @@
 package com.recipemaster.recipeservice.service;
 
-import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch.core.IndexResponse;
-import co.elastic.clients.elasticsearch.core.SearchResponse;
-import com.recipemaster.ProductElasticDocument;
 import com.recipemaster.entities.ProductEntity;
+import com.recipemaster.entities.ProductIndexOutboxEntity;
+import com.recipemaster.recipeservice.repository.ProductIndexOutboxRepository;
 import com.recipemaster.recipeservice.repository.ProductRepository;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ProductElasticService {
-
     private final ProductRepository productRepository;
-    private final ElasticsearchClient elasticsearchClient;
+    private final ProductSearchBackend productSearchBackend;
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductNearCache productNearCache;
+    private final ProductIndexOutboxRepository productIndexOutboxRepository;
+    private final CircuitBreaker productSearchCircuitBreaker;
+    private final ProductTrigramMatcher productTrigramMatcher;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ConcurrentMap<String, CompletableFuture<ProductEntity>> inFlight = new ConcurrentHashMap<>();
 
     public ProductEntity findOrCreate(String name, String unit) {
-        ProductEntity fromEs = searchInElastic(name, unit);
-        if (fromEs != null) {
-            return fromEs;
+        return findOrCreateAll(List.of(new ProductKey(name, unit))).get(name);
+    }
+
+    /**
+     * Resolves all distinct names with one backend search, one IN query and one upsert. New products are
+     * queued in product_index_outbox and handed to {@link ProductSearchBackend#productsStored} after commit.
+     * Names already in the near-cache skip all of them. Concurrent calls for the same normalized name
+     * share a single resolution: the first caller resolves it, the others wait for its result.
+     * The first unit seen for a name is used when the product has to be created.
+     * While the search backend fails or is slow, names are matched with {@link ProductTrigramMatcher} instead.
+     *
+     * @return products keyed by the requested name
+     */
+    public Map<String, ProductEntity> findOrCreateAll(Collection<ProductKey> keys) {
+        Map<String, ProductKey> requests = new LinkedHashMap<>();
+        keys.forEach(key -> requests.putIfAbsent(key.name(), key));
+        Map<String, ProductEntity> resolved = new LinkedHashMap<>();
+        Map<String, ProductKey> owned = new LinkedHashMap<>();
+        Map<String, CompletableFuture<ProductEntity>> claims = new HashMap<>();
+        Map<String, CompletableFuture<ProductEntity>> awaited = new HashMap<>();
+        for (ProductKey key : requests.values()) {
+            ProductEntity cached = productNearCache.get(key.name(), key.unit());
+            if (cached != null) {
+                resolved.put(key.name(), cached);
+                continue;
+            }
+            String flightKey = normalize(key.name());
+            if (owned.containsKey(flightKey) || awaited.containsKey(flightKey)) {
+                continue;
+            }
+            CompletableFuture<ProductEntity> claim = new CompletableFuture<>();
+            CompletableFuture<ProductEntity> running = inFlight.putIfAbsent(flightKey, claim);
+            if (running == null) {
+                owned.put(flightKey, key);
+                claims.put(flightKey, claim);
+            } else {
+                awaited.put(flightKey, running);
+            }
+        }
+
+        Map<String, ProductEntity> byFlightKey = new HashMap<>();
+        if (!owned.isEmpty()) {
+            try {
+                Map<String, ProductEntity> products = resolve(owned.values());
+                owned.forEach((flightKey, key) -> {
+                    ProductEntity product = products.get(key.name());
+                    byFlightKey.put(flightKey, product);
+                    claims.get(flightKey).complete(product);
+                });
+            } catch (RuntimeException e) {
+                claims.values().forEach(claim -> claim.completeExceptionally(e));
+                throw e;
+            } finally {
+                claims.forEach(inFlight::remove);
+            }
         }
+        awaited.forEach((flightKey, running) -> byFlightKey.put(flightKey, copyOf(await(running))));
 
-        ProductEntity saved = createProductInDb(name, unit);
-        indexInElastic(saved);
-        return saved;
+        requests.values().forEach(key -> resolved.computeIfAbsent(key.name(), name -> byFlightKey.get(normalize(name))));
+        return resolved;
     }
 
-    private ProductEntity searchInElastic(String name, String unit) {
+    private Map<String, ProductEntity> resolve(Collection<ProductKey> keys) {
+        Map<String, String> unitsByName = new LinkedHashMap<>();
+        keys.forEach(key -> unitsByName.put(key.name(), key.unit()));
+        List<String> names = new ArrayList<>(unitsByName.keySet());
+
+        List<String> searchable = names.stream()
+                .filter(name -> !productNearCache.isKnownUnmatched(name))
+                .toList();
+        Map<String, String> matchedNames;
+        boolean degraded = false;
         try {
-            SearchResponse<ProductElasticDocument> response = elasticsearchClient.search(s -> s
-                            .index("products")
-                            .query(q -> q
-                                    .match(m -> m
-                                            .field("name")
-                                            .query(name)
-                                    )
-                            ),
-                    ProductElasticDocument.class
-            );
-
-            if (!response.hits().hits().isEmpty()) {
-                ProductElasticDocument hit = response.hits().hits().get(0).source();
-                return productRepository
-                        .findByNameIgnoreCase(hit.getName())
-                        .orElseGet(() -> {
-                            ProductEntity e = new ProductEntity();
-                            e.setName(hit.getName());
-                            e.setUnit(unit);
-                            return productRepository.save(e);
-                        });
+            matchedNames = productSearchCircuitBreaker.executeSupplier(
+                    () -> productSearchBackend.findMatchingNames(searchable));
+        } catch (CallNotPermittedException e) {
+            matchedNames = productTrigramMatcher.findMatchingNames(searchable);
+            degraded = true;
+        } catch (RuntimeException e) {
+            log.warn("Product search failed, falling back to trigram matching", e);
+            matchedNames = productTrigramMatcher.findMatchingNames(searchable);
+            degraded = true;
+        }
+        Map<String, String> storedNames = new LinkedHashMap<>();
+        Set<String> notIndexed = new HashSet<>();
+        for (String name : names) {
+            String matched = matchedNames.get(name);
+            storedNames.put(name, matched != null ? matched : name);
+        }
+        // Fallback results say nothing about the search index, so they are neither cached nor re-queued
+        for (String name : degraded ? List.<String>of() : searchable) {
+            if (!matchedNames.containsKey(name)) {
+                notIndexed.add(name.toLowerCase());
+                productNearCache.markUnmatched(name);
+            }
+        }
+
+        Map<String, ProductEntity> products = loadByName(storedNames.values());
+        Map<String, String> missing = new LinkedHashMap<>();
+        storedNames.forEach((name, stored) -> {
+            if (!products.containsKey(stored.toLowerCase())) {
+                missing.putIfAbsent(stored, unitsByName.get(name));
+            }
+        });
+        List<ProductEntity> queued = new ArrayList<>(products.values().stream()
+                .filter(product -> notIndexed.contains(product.getName().toLowerCase()))
+                .toList());
+        if (!queued.isEmpty()) {
+            productIndexOutboxRepository.saveAll(queued.stream()
+                    .map(product -> new ProductIndexOutboxEntity(product.getId()))
+                    .toList());
+        }
+        if (!missing.isEmpty()) {
+            List<ProductEntity> created = upsertProducts(missing);
+            for (ProductEntity product : created) {
+                products.put(product.getName().toLowerCase(), product);
+            }
+            productSuggestIndex.addAll(created);
+            queued.addAll(created);
+        }
+        if (!queued.isEmpty()) {
+            indexAfterCommit(queued);
+        }
+
+        Map<String, ProductEntity> resolved = new HashMap<>();
+        boolean cacheable = !degraded;
+        storedNames.forEach((name, stored) -> {
+            ProductEntity product = products.get(stored.toLowerCase());
+            if (product != null && cacheable) {
+                productNearCache.put(name, unitsByName.get(name), product);
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Ошибка при поиске в Elasticsearch", e);
+            resolved.put(name, product);
+        });
+        return resolved;
+    }
+
+    private Map<String, ProductEntity> loadByName(Collection<String> names) {
+        Set<String> lowerNames = new HashSet<>();
+        names.forEach(name -> lowerNames.add(name.toLowerCase()));
+        Map<String, ProductEntity> products = new HashMap<>();
+        productRepository.findAllByLowerNameIn(lowerNames)
+                .forEach(product -> products.put(product.getName().toLowerCase(), product));
+        return products;
+    }
+
+    /**
+     * Inserts the products and their outbox entries in one statement, so a product is never
+     * committed without being queued for indexing. Rows that already exist are returned as they are,
+     * so a concurrent insert of the same name never surfaces as a unique constraint violation.
+     */
+    private List<ProductEntity> upsertProducts(Map<String, String> unitsByName) {
+        String[] names = unitsByName.keySet().toArray(String[]::new);
+        String[] units = unitsByName.values().toArray(String[]::new);
+        return jdbcTemplate.query("""
+                        WITH upserted AS (
+                            INSERT INTO product (name, unit)
+                            SELECT * FROM unnest(?::text[], ?::text[])
+                            ON CONFLICT (name) DO UPDATE SET name = EXCLUDED.name
+                            RETURNING id, name, unit
+                        ), queued AS (
+                            INSERT INTO product_index_outbox (product_id)
+                            SELECT id FROM upserted
+                        )
+                        SELECT id, name, unit FROM upserted
+                        """,
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("text", names));
+                    ps.setArray(2, ps.getConnection().createArrayOf("text", units));
+                },
+                (rs, rowNum) -> {
+                    ProductEntity product = new ProductEntity();
+                    product.setId(rs.getLong("id"));
+                    product.setName(rs.getString("name"));
+                    product.setUnit(rs.getString("unit"));
+                    return product;
+                });
+    }
+
+    private void indexAfterCommit(List<ProductEntity> products) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            indexStored(products);
+            return;
         }
-        return null;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                indexStored(products);
+            }
+        });
     }
 
-    private ProductEntity createProductInDb(String name, String unit) {
-        ProductEntity product = new ProductEntity();
-        product.setName(name);
-        product.setUnit(unit);
-        return productRepository.save(product);
+    // The outbox entries are already committed, so a failure here only delays indexing
+    private void indexStored(List<ProductEntity> products) {
+        try {
+            productSearchBackend.productsStored(products);
+        } catch (RuntimeException e) {
+            log.warn("Failed to index {} stored products", products.size(), e);
+        }
     }
 
-    private void indexInElastic(ProductEntity product) {
-        ProductElasticDocument doc = buildDocument(product);
+    private static ProductEntity await(CompletableFuture<ProductEntity> running) {
         try {
-            IndexResponse resp = elasticsearchClient.index(i -> i
-                    .index("products")
-                    .id(doc.getId())
-                    .document(doc)
-            );
-        } catch (IOException e) {
-            throw new RuntimeException("Ошибка при индексации в Elasticsearch", e);
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
         }
     }
 
-    private ProductElasticDocument buildDocument(ProductEntity product) {
-        ProductElasticDocument doc = new ProductElasticDocument();
-        doc.setId(product.getId().toString());
-        doc.setName(product.getName());
-        doc.setUnit(product.getUnit());
-        return doc;
+    private static ProductEntity copyOf(ProductEntity product) {
+        if (product == null) {
+            return null;
+        }
+        ProductEntity copy = new ProductEntity();
+        copy.setId(product.getId());
+        copy.setName(product.getName());
+        copy.setUnit(product.getUnit());
+        return copy;
+    }
+
+    private static String normalize(String name) {
+        return name.strip().toLowerCase(Locale.ROOT);
+    }
+
+    public record ProductKey(String name, String unit) {
     }
 }
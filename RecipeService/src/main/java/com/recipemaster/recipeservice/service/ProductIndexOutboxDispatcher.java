@@ -0,0 +1,149 @@
+package com.recipemaster.recipeservice.service;
+
+import com.recipemaster.entities.ProductEntity;
+import com.recipemaster.entities.ProductIndexOutboxEntity;
+import com.recipemaster.recipeservice.config.ProductOutboxProperties;
+import com.recipemaster.recipeservice.repository.ProductIndexOutboxRepository;
+import com.recipemaster.recipeservice.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains product_index_outbox into the search backend. Each batch is locked with SKIP LOCKED,
+ * so several instances can dispatch side by side. Delivered entries are deleted; failed ones stay in the
+ * table with a backoff until {@code product.outbox.max-attempts}, then they are dead-lettered.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "product.outbox.enabled", havingValue = "true", matchIfMissing = true)
+public class ProductIndexOutboxDispatcher {
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ProductIndexOutboxRepository outboxRepository;
+    private final ProductRepository productRepository;
+    private final ProductSearchBackend productSearchBackend;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductOutboxProperties properties;
+    private final Counter dispatched;
+    private final Counter failed;
+    private final Counter deadLettered;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    public ProductIndexOutboxDispatcher(ProductIndexOutboxRepository outboxRepository,
+                                        ProductRepository productRepository,
+                                        ProductSearchBackend productSearchBackend,
+                                        TransactionTemplate transactionTemplate,
+                                        ProductOutboxProperties properties,
+                                        MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.productRepository = productRepository;
+        this.productSearchBackend = productSearchBackend;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.dispatched = meterRegistry.counter("product.outbox.dispatched");
+        this.failed = meterRegistry.counter("product.outbox.failed");
+        this.deadLettered = meterRegistry.counter("product.outbox.dead_lettered");
+        Gauge.builder("product.outbox.pending", pending, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("product.outbox.dead", dead, AtomicLong::get).register(meterRegistry);
+        TimeGauge.builder("product.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${product.outbox.poll-interval:1s}")
+    public void dispatch() {
+        int drained;
+        do {
+            drained = transactionTemplate.execute(status -> dispatchBatch());
+        } while (drained == properties.batchSize());
+        ProductIndexOutboxRepository.OutboxStats stats = outboxRepository.getStats();
+        pending.set(stats.getPending());
+        dead.set(stats.getDeadLettered());
+        lagMillis.set(Math.round(stats.getLagSeconds() * 1000));
+    }
+
+    /**
+     * @return how many entries were handled, 0 when the batch was empty or the backend could not be reached
+     */
+    private int dispatchBatch() {
+        List<ProductIndexOutboxEntity> batch = outboxRepository.lockDueBatch(properties.batchSize());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<ProductEntity> products = new ArrayList<>(batch.size());
+        productRepository.findAllById(batch.stream().map(ProductIndexOutboxEntity::getProductId).toList())
+                .forEach(products::add);
+        Map<Long, String> failures;
+        try {
+            failures = productSearchBackend.index(products);
+        } catch (RuntimeException e) {
+            Instant now = Instant.now();
+            batch.forEach(entry -> retry(entry, e.getMessage(), now));
+            outboxRepository.saveAll(batch);
+            log.warn("Failed to index {} products, will retry", batch.size(), e);
+            return 0;
+        }
+        List<ProductIndexOutboxEntity> delivered = new ArrayList<>(batch.size());
+        List<ProductIndexOutboxEntity> rejected = new ArrayList<>();
+        Instant now = Instant.now();
+        for (ProductIndexOutboxEntity entry : batch) {
+            String error = failures.get(entry.getProductId());
+            if (error == null) {
+                delivered.add(entry);
+            } else {
+                retry(entry, error, now);
+                rejected.add(entry);
+            }
+        }
+        if (!delivered.isEmpty()) {
+            outboxRepository.deleteAllInBatch(delivered);
+            dispatched.increment(delivered.size());
+        }
+        if (!rejected.isEmpty()) {
+            outboxRepository.saveAll(rejected);
+            log.warn("Search backend rejected {} of {} products", rejected.size(), batch.size());
+        }
+        return batch.size();
+    }
+
+    private void retry(ProductIndexOutboxEntity entry, String error, Instant now) {
+        entry.setAttempts(entry.getAttempts() + 1);
+        entry.setLastError(truncate(error));
+        failed.increment();
+        if (entry.getAttempts() >= properties.maxAttempts()) {
+            entry.setDeadLetteredAt(now);
+            deadLettered.increment();
+            log.error("Giving up on indexing product {} after {} attempts: {}",
+                    entry.getProductId(), entry.getAttempts(), entry.getLastError());
+        } else {
+            entry.setNextAttemptAt(now.plus(backoff(entry.getAttempts())));
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = properties.initialBackoff().multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(properties.maxBackoff()) > 0 ? properties.maxBackoff() : delay;
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
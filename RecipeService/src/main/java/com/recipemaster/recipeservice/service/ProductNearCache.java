@@ -0,0 +1,81 @@
+package com.recipemaster.recipeservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.recipemaster.entities.ProductEntity;
+import com.recipemaster.recipeservice.config.ProductLookupProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * In-process cache in front of product resolution, keyed by normalized name and unit.
+ * Holds id snapshots rather than entities, so every hit hands out a fresh detached {@link ProductEntity}.
+ */
+@Component
+public class ProductNearCache {
+    public static final String CACHE_NAME = "productLookup";
+    public static final String NEGATIVE_CACHE_NAME = "productLookupUnmatched";
+
+    private final Cache<Key, CachedProduct> products;
+    private final Cache<String, Boolean> unmatched;
+
+    public ProductNearCache(ProductLookupProperties productLookupProperties, MeterRegistry meterRegistry) {
+        ProductLookupProperties.Cache config = productLookupProperties.cache();
+        this.products = Caffeine.newBuilder()
+                .maximumSize(config.maximumSize())
+                .expireAfterWrite(config.ttl())
+                .recordStats()
+                .build();
+        this.unmatched = Caffeine.newBuilder()
+                .maximumSize(config.maximumSize())
+                .expireAfterWrite(config.negativeTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, products, CACHE_NAME);
+        CaffeineCacheMetrics.monitor(meterRegistry, unmatched, NEGATIVE_CACHE_NAME);
+    }
+
+    public ProductEntity get(String name, String unit) {
+        CachedProduct cached = products.getIfPresent(Key.of(name, unit));
+        return cached == null ? null : cached.toEntity();
+    }
+
+    public void put(String name, String unit, ProductEntity product) {
+        products.put(Key.of(name, unit), new CachedProduct(product.getId(), product.getName(), product.getUnit()));
+    }
+
+    /**
+     * Whether Elasticsearch recently found nothing for the name, so the search can be skipped
+     * and the name looked up in PostgreSQL directly.
+     */
+    public boolean isKnownUnmatched(String name) {
+        return unmatched.getIfPresent(normalize(name)) != null;
+    }
+
+    public void markUnmatched(String name) {
+        unmatched.put(normalize(name), Boolean.TRUE);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private record Key(String name, String unit) {
+        private static Key of(String name, String unit) {
+            return new Key(normalize(name), normalize(unit));
+        }
+    }
+
+    private record CachedProduct(long id, String name, String unit) {
+        private ProductEntity toEntity() {
+            ProductEntity product = new ProductEntity();
+            product.setId(id);
+            product.setName(name);
+            product.setUnit(unit);
+            return product;
+        }
+    }
+}
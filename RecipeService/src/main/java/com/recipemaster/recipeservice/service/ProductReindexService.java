@@ -0,0 +1,299 @@
+package com.recipemaster.recipeservice.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ErrorCause;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.indices.ElasticsearchIndicesClient;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import com.recipemaster.ProductElasticDocument;
+import com.recipemaster.dto.responses.ProductReindexStatusResponse;
+import com.recipemaster.dto.responses.ProductReindexStatusResponse.State;
+import com.recipemaster.recipeservice.config.ProductReindexProperties;
+import com.recipemaster.recipeservice.repository.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Rebuilds the {@code products} index from PostgreSQL without downtime. Documents go into a new
+ * {@code products_v<timestamp>} index created from {@code elasticsearch/products-index.json}, the file
+ * {@code init-index.sh} uses as well; searches keep hitting the old index until the alias is swapped.
+ */
+@Slf4j
+@Service
+public class ProductReindexService {
+    public static final String ALIAS = "products";
+    private static final String INDEX_PREFIX = "products_v";
+    private static final String INDEX_SETTINGS = "elasticsearch/products-index.json";
+    private static final DateTimeFormatter VERSION_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+    private static final int PROGRESS_LOG_BATCHES = 100;
+    private static final int MAX_TRACKED_GAPS = 10_000;
+
+    private final ElasticsearchIndicesClient indicesClient;
+    private final ElasticsearchAsyncClient asyncClient;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductReindexProperties properties;
+    private final AtomicReference<Run> current = new AtomicReference<>();
+
+    public ProductReindexService(ElasticsearchClient elasticsearchClient,
+                                 ProductRepository productRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 ProductReindexProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.indicesClient = elasticsearchClient.indices();
+        this.asyncClient = new ElasticsearchAsyncClient(elasticsearchClient._transport(),
+                elasticsearchClient._transportOptions());
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        Gauge.builder("product.reindex.indexed", current, ref -> ref.get() == null ? 0 : ref.get().indexed.get())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts a reindex in the background.
+     *
+     * @throws IllegalStateException when a reindex is already running
+     */
+    public ProductReindexStatusResponse start() {
+        Run previous = current.get();
+        if (previous != null && previous.state == State.RUNNING) {
+            throw new IllegalStateException("Переиндексация уже выполняется: " + previous.index);
+        }
+        Run run = new Run(INDEX_PREFIX + VERSION_FORMAT.format(Instant.now()));
+        if (!current.compareAndSet(previous, run)) {
+            throw new IllegalStateException("Переиндексация уже выполняется");
+        }
+        Thread.ofPlatform().name("product-reindex").daemon().start(() -> execute(run));
+        return run.toResponse();
+    }
+
+    public ProductReindexStatusResponse getStatus() {
+        Run run = current.get();
+        if (run == null) {
+            return new ProductReindexStatusResponse(State.IDLE, null, 0, 0, 0, null, null, null);
+        }
+        return run.toResponse();
+    }
+
+    private void execute(Run run) {
+        try {
+            createIndex(run.index);
+            run.total = productRepository.count();
+            log.info("Reindexing {} products into {}", run.total, run.index);
+            Loaded loaded = transactionTemplate.execute(status -> load(run));
+            indicesClient.putSettings(p -> p
+                    .index(run.index)
+                    .settings(s -> s.refreshInterval(t -> t.time("1s"))));
+            indicesClient.refresh(r -> r.index(run.index));
+            swapAlias(run.index);
+            int requeued = requeueMissedBy(loaded);
+            run.finish(State.COMPLETED, null);
+            log.info("Reindex into {} completed: {} products, {} docs/s, {} created meanwhile queued for indexing",
+                    run.index, run.indexed.get(), Math.round(run.docsPerSecond()), requeued);
+        } catch (Exception e) {
+            log.error("Reindex into {} failed", run.index, e);
+            try {
+                indicesClient.delete(d -> d.index(run.index).ignoreUnavailable(true));
+            } catch (Exception cleanup) {
+                log.warn("Failed to delete incomplete index {}", run.index, cleanup);
+            }
+            // Only now may the next run start
+            run.finish(State.FAILED, e.getMessage());
+        }
+    }
+
+    private void createIndex(String index) throws IOException {
+        try (InputStream settings = new ClassPathResource(INDEX_SETTINGS).getInputStream()) {
+            indicesClient.create(c -> c.index(index).withJson(settings));
+        }
+        // No refreshes while loading; documents become searchable after the final refresh
+        indicesClient.putSettings(p -> p
+                .index(index)
+                .settings(s -> s.refreshInterval(t -> t.time("-1"))));
+    }
+
+    /**
+     * Streams the product table through a server-side cursor into bulk requests. Reading blocks while
+     * {@code maxInFlight} requests are unanswered, so memory stays bounded regardless of table size.
+     *
+     * @return the last product id read and the most recent ids below it the cursor did not see
+     */
+    private Loaded load(Run run) {
+        int maxInFlight = properties.maxInFlight();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong batches = new AtomicLong();
+        long lastId = 0;
+        ArrayDeque<Long> gaps = new ArrayDeque<>();
+        try (Stream<ProductRepository.ProductRow> rows = productRepository.streamAllRows()) {
+            Iterator<ProductRepository.ProductRow> iterator = rows.iterator();
+            List<ProductElasticDocument> batch = new ArrayList<>(properties.batchSize());
+            while (iterator.hasNext()) {
+                ProductRepository.ProductRow row = iterator.next();
+                batch.add(toDocument(row));
+                for (long id = Math.max(lastId, row.getId() - MAX_TRACKED_GAPS) + 1; id < row.getId(); id++) {
+                    gaps.addLast(id);
+                    if (gaps.size() > MAX_TRACKED_GAPS) {
+                        gaps.removeFirst();
+                    }
+                }
+                lastId = row.getId();
+                if (batch.size() == properties.batchSize() || !iterator.hasNext()) {
+                    send(run, batch, inFlight, failure, batches);
+                    batch = new ArrayList<>(properties.batchSize());
+                }
+            }
+        } finally {
+            // Wait for every request, also on failure: a late bulk request would recreate a deleted index
+            inFlight.acquireUninterruptibly(maxInFlight);
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("Ошибка при индексации в Elasticsearch: " + failure.get().getMessage(),
+                    failure.get());
+        }
+        return new Loaded(lastId, List.copyOf(gaps));
+    }
+
+    private void send(Run run, List<ProductElasticDocument> batch, Semaphore inFlight,
+                      AtomicReference<Throwable> failure, AtomicLong batches) {
+        inFlight.acquireUninterruptibly();
+        if (failure.get() != null) {
+            inFlight.release();
+            throw new IllegalStateException("Ошибка при индексации в Elasticsearch: " + failure.get().getMessage(),
+                    failure.get());
+        }
+        BulkRequest.Builder request = new BulkRequest.Builder().index(run.index);
+        for (ProductElasticDocument doc : batch) {
+            request.operations(op -> op.index(i -> i.id(doc.getId()).document(doc)));
+        }
+        asyncClient.bulk(request.build()).whenComplete((response, error) -> {
+            try {
+                if (error != null) {
+                    failure.compareAndSet(null, error);
+                } else if (response.errors()) {
+                    String reason = response.items().stream()
+                            .map(BulkResponseItem::error)
+                            .filter(Objects::nonNull)
+                            .map(ErrorCause::reason)
+                            .findFirst()
+                            .orElse("неизвестная ошибка");
+                    failure.compareAndSet(null, new IllegalStateException(reason));
+                } else {
+                    long indexed = run.indexed.addAndGet(batch.size());
+                    if (batches.incrementAndGet() % PROGRESS_LOG_BATCHES == 0) {
+                        log.info("Reindex into {}: {}/{} products, {} docs/s",
+                                run.index, indexed, run.total, Math.round(run.docsPerSecond()));
+                    }
+                }
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Points the alias at the new index and drops the indices it pointed at, in one atomic request.
+     * A concrete {@code products} index left by an older {@code init-index.sh} is dropped the same way.
+     */
+    private void swapAlias(String index) throws IOException {
+        List<Action> actions = new ArrayList<>();
+        if (indicesClient.existsAlias(a -> a.name(ALIAS)).value()) {
+            for (String previous : indicesClient.getAlias(a -> a.name(ALIAS)).result().keySet()) {
+                actions.add(Action.of(a -> a.removeIndex(r -> r.index(previous))));
+            }
+        } else if (indicesClient.exists(e -> e.index(ALIAS)).value()) {
+            actions.add(Action.of(a -> a.removeIndex(r -> r.index(ALIAS))));
+        }
+        actions.add(Action.of(a -> a.add(add -> add.index(index).alias(ALIAS))));
+        indicesClient.updateAliases(u -> u.actions(actions));
+    }
+
+    /**
+     * Products committed after the cursor was opened were indexed into the old index only; queue them again
+     * so the outbox dispatcher writes them through the new alias. Besides ids above the last one read, that
+     * includes ids allocated before the cursor opened but committed after it, which the cursor saw as gaps.
+     */
+    private int requeueMissedBy(Loaded loaded) {
+        Long[] gaps = loaded.gaps().toArray(Long[]::new);
+        return jdbcTemplate.update("""
+                        INSERT INTO product_index_outbox (product_id)
+                        SELECT id FROM product WHERE id > ? OR id = ANY(?::bigint[])
+                        """,
+                ps -> {
+                    ps.setLong(1, loaded.lastId());
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", gaps));
+                });
+    }
+
+    private static ProductElasticDocument toDocument(ProductRepository.ProductRow row) {
+        ProductElasticDocument doc = new ProductElasticDocument();
+        doc.setId(row.getId().toString());
+        doc.setName(row.getName());
+        doc.setUnit(row.getUnit());
+        return doc;
+    }
+
+    private record Loaded(long lastId, List<Long> gaps) {
+    }
+
+    private static final class Run {
+        private final String index;
+        private final Instant startedAt = Instant.now();
+        private final long startedNanos = System.nanoTime();
+        private final AtomicLong indexed = new AtomicLong();
+        private volatile long total;
+        private volatile State state = State.RUNNING;
+        private volatile Instant finishedAt;
+        private volatile long finishedNanos;
+        private volatile String error;
+
+        private Run(String index) {
+            this.index = index;
+        }
+
+        private void finish(State state, String error) {
+            this.finishedNanos = System.nanoTime();
+            this.finishedAt = Instant.now();
+            this.error = error;
+            this.state = state;
+        }
+
+        private double docsPerSecond() {
+            long end = state == State.RUNNING ? System.nanoTime() : finishedNanos;
+            double seconds = (end - startedNanos) / 1_000_000_000.0;
+            return seconds > 0 ? indexed.get() / seconds : 0;
+        }
+
+        private ProductReindexStatusResponse toResponse() {
+            return new ProductReindexStatusResponse(state, index, total, indexed.get(), docsPerSecond(),
+                    startedAt, finishedAt, error);
+        }
+    }
+}
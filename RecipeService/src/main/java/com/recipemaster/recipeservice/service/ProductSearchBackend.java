@@ -0,0 +1,30 @@
+package com.recipemaster.recipeservice.service;
+
+import com.recipemaster.entities.ProductEntity;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Full-text matching of requested product names against known products.
+ */
+public interface ProductSearchBackend {
+
+    /**
+     * @return the best matching stored product name for every requested name that has a match
+     */
+    Map<String, String> findMatchingNames(List<String> names);
+
+    /**
+     * @return the error of every product the backend rejected, keyed by product id; a failure of the
+     * whole request is thrown instead
+     */
+    Map<Long, String> index(List<ProductEntity> products);
+
+    /**
+     * Called once the transaction that created or re-queued the products has committed. Backends fed by
+     * product_index_outbox leave them to {@link ProductIndexOutboxDispatcher}.
+     */
+    default void productsStored(List<ProductEntity> products) {
+    }
+}
@@ -0,0 +1,168 @@
+package com.recipemaster.recipeservice.service;
+
+import com.recipemaster.dto.ProductSuggestionDto;
+import com.recipemaster.entities.ProductEntity;
+import com.recipemaster.recipeservice.config.ProductSuggestProperties;
+import com.recipemaster.recipeservice.repository.ProductRepository;
+import com.recipemaster.recipeservice.utils.TopKPrefixTrie;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory autocomplete over product names, ranked by how many recipes and pantries use the product.
+ * Every word of a name is a key, so "молоко" also suggests "сгущённое молоко".
+ * Lookups never touch the database or the search backend.
+ */
+@Slf4j
+@Component
+public class ProductSuggestIndex {
+    private static final Comparator<Suggestion> RANKING = Comparator.comparingLong(Suggestion::usage).reversed()
+            .thenComparing(Suggestion::name)
+            .thenComparingLong(Suggestion::id);
+
+    private final ProductRepository productRepository;
+    private final ProductSuggestProperties properties;
+    private final Timer suggestTimer;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private TopKPrefixTrie<Suggestion> trie;
+    private Set<Long> indexedIds = new HashSet<>();
+    // Products added while a rebuild reads the table; null when no rebuild is running
+    private List<Suggestion> addedDuringRebuild;
+
+    public ProductSuggestIndex(ProductRepository productRepository,
+                               ProductSuggestProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.properties = properties;
+        this.trie = newTrie();
+        this.suggestTimer = Timer.builder("product.suggest")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${product.suggest.rebuild-interval:10m}",
+            fixedDelayString = "${product.suggest.rebuild-interval:10m}")
+    public synchronized void rebuild() {
+        setAddedDuringRebuild(new ArrayList<>());
+        try {
+            TopKPrefixTrie<Suggestion> rebuilt = newTrie();
+            Set<Long> rebuiltIds = new HashSet<>();
+            List<ProductRepository.ProductUsage> products = productRepository.findAllWithUsage();
+            for (ProductRepository.ProductUsage product : products) {
+                long usage = product.getUsage() == null ? 0 : product.getUsage();
+                put(rebuilt, new Suggestion(product.getId(), product.getName(), product.getUnit(), usage));
+                rebuiltIds.add(product.getId());
+            }
+            lock.writeLock().lock();
+            try {
+                // The read may have missed products added meanwhile
+                for (Suggestion suggestion : addedDuringRebuild) {
+                    if (rebuiltIds.add(suggestion.id())) {
+                        put(rebuilt, suggestion);
+                    }
+                }
+                trie = rebuilt;
+                indexedIds = rebuiltIds;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Product suggest index rebuilt: {} products, {} nodes", rebuiltIds.size(), rebuilt.nodeCount());
+        } finally {
+            setAddedDuringRebuild(null);
+        }
+    }
+
+    /**
+     * Makes newly created products suggestible right away. They rank as unused until the next rebuild;
+     * products already in the index are left as they are.
+     */
+    public void addAll(Collection<ProductEntity> products) {
+        lock.writeLock().lock();
+        try {
+            for (ProductEntity product : products) {
+                Suggestion suggestion = new Suggestion(product.getId(), product.getName(), product.getUnit(), 0);
+                if (addedDuringRebuild != null) {
+                    addedDuringRebuild.add(suggestion);
+                }
+                if (indexedIds.add(product.getId())) {
+                    put(trie, suggestion);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ProductSuggestionDto> suggest(String prefix, int limit) {
+        long start = System.nanoTime();
+        String key = normalize(prefix);
+        List<Suggestion> found;
+        lock.readLock().lock();
+        try {
+            found = trie.get(key, Math.min(limit, properties.maxResults()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<ProductSuggestionDto> suggestions = new ArrayList<>(found.size());
+        for (Suggestion suggestion : found) {
+            suggestions.add(new ProductSuggestionDto(suggestion.id(), suggestion.name(), suggestion.unit()));
+        }
+        suggestTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return suggestions;
+    }
+
+    private void setAddedDuringRebuild(List<Suggestion> added) {
+        lock.writeLock().lock();
+        try {
+            addedDuringRebuild = added;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private TopKPrefixTrie<Suggestion> newTrie() {
+        return new TopKPrefixTrie<>(properties.maxResults(), RANKING, Suggestion::id);
+    }
+
+    private static void put(TopKPrefixTrie<Suggestion> trie, Suggestion suggestion) {
+        String name = normalize(suggestion.name());
+        trie.put(name, suggestion);
+        for (int i = name.indexOf(' '); i >= 0; i = name.indexOf(' ', i + 1)) {
+            trie.put(name.substring(i + 1), suggestion);
+        }
+    }
+
+    /**
+     * Lower case, "ё" as "е", single spaces between words.
+     */
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.strip()
+                .toLowerCase(Locale.ROOT)
+                .replace('ё', 'е')
+                .replaceAll("\\s+", " ");
+    }
+
+    private record Suggestion(long id, String name, String unit, long usage) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.recipemaster.recipeservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Degraded-mode product matching used while the search backend is unavailable. Picks the most similar
+ * product name by trigram similarity over {@code idx_product_name_trgm}; it knows nothing about
+ * morphology or synonyms, so it matches fewer names than the analyzer does.
+ */
+@Component
+public class ProductTrigramMatcher {
+    private final JdbcTemplate jdbcTemplate;
+    private final Counter fallbacks;
+
+    public ProductTrigramMatcher(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fallbacks = meterRegistry.counter("product.lookup.fallback");
+    }
+
+    /**
+     * Same contract as {@link ProductSearchBackend#findMatchingNames(List)}.
+     */
+    public Map<String, String> findMatchingNames(List<String> names) {
+        fallbacks.increment();
+        if (names.isEmpty()) {
+            return Map.of();
+        }
+        String[] queries = names.toArray(String[]::new);
+        Map<String, String> matched = new HashMap<>();
+        jdbcTemplate.query("""
+                        SELECT DISTINCT ON (q.name) q.name AS query, p.name AS name
+                        FROM unnest(?::text[]) AS q(name)
+                        JOIN product p ON lower(p.name) % lower(q.name)
+                        ORDER BY q.name, similarity(lower(p.name), lower(q.name)) DESC, p.id
+                        """,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", queries)),
+                rs -> {
+                    matched.put(rs.getString("query"), rs.getString("name"));
+                });
+        return matched;
+    }
+}
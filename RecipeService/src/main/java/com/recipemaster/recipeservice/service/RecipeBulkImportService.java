@@ -0,0 +1,296 @@
+package com.recipemaster.recipeservice.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.recipemaster.dto.IngredientDto;
+import com.recipemaster.dto.RecipeInputDto;
+import com.recipemaster.dto.responses.RecipeImportResponse;
+import com.recipemaster.entities.IngredientEntity;
+import com.recipemaster.entities.ProductEntity;
+import com.recipemaster.entities.RecipeEntity;
+import com.recipemaster.recipeservice.utils.Quantities;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Imports recipes in chunks: new product names are resolved in one batch per chunk, recipes and
+ * ingredients go to the database as JDBC batches with pre-allocated recipe ids.
+ * Invalid lines are reported and skipped, the rest of the input is still imported.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecipeBulkImportService {
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    // Column sizes of recipe and product
+    private static final int MAX_TITLE_LENGTH = 255;
+    private static final int MAX_CATEGORY_LENGTH = 128;
+    private static final int MAX_PRODUCT_NAME_LENGTH = 255;
+    private static final int MAX_UNIT_LENGTH = 32;
+
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductElasticService productElasticService;
+    private final RecipeProductIndex recipeProductIndex;
+    private final RecipeSearchCache recipeSearchCache;
+    private final MeterRegistry meterRegistry;
+
+    public RecipeImportResponse importNdjson(InputStream body) throws IOException {
+        Import run = new Import();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String text;
+        int line = 0;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            try {
+                run.accept(line, objectMapper.readValue(text, RecipeInputDto.class));
+            } catch (JsonProcessingException e) {
+                run.fail(line, "Некорректный JSON: " + e.getOriginalMessage());
+            }
+        }
+        return run.finish();
+    }
+
+    /**
+     * Reads a JSON array element by element; the reported line is the 1-based position in the array.
+     */
+    public RecipeImportResponse importJsonArray(InputStream body) throws IOException {
+        Import run = new Import();
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Ожидался JSON-массив рецептов");
+            }
+            int position = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                position++;
+                JsonNode node = parser.readValueAsTree();
+                if (node == null || !node.isObject()) {
+                    run.fail(position, "Ожидался объект рецепта");
+                    continue;
+                }
+                try {
+                    run.accept(position, objectMapper.treeToValue(node, RecipeInputDto.class));
+                } catch (JsonProcessingException e) {
+                    run.fail(position, "Некорректный JSON: " + e.getOriginalMessage());
+                }
+            }
+        }
+        return run.finish();
+    }
+
+    public RecipeImportResponse importRecipes(Stream<RecipeInputDto> recipes) {
+        Import run = new Import();
+        int line = 0;
+        for (Iterator<RecipeInputDto> it = recipes.iterator(); it.hasNext(); ) {
+            run.accept(++line, it.next());
+        }
+        return run.finish();
+    }
+
+    private static String validate(RecipeInputDto recipe) {
+        if (recipe == null) {
+            return "Пустой рецепт";
+        }
+        if (recipe.getTitle() == null || recipe.getTitle().isBlank()) {
+            return "Не указано название рецепта";
+        }
+        if (longerThan(recipe.getTitle(), MAX_TITLE_LENGTH)) {
+            return "Название рецепта длиннее " + MAX_TITLE_LENGTH + " символов";
+        }
+        if (longerThan(recipe.getCategory(), MAX_CATEGORY_LENGTH)) {
+            return "Категория рецепта длиннее " + MAX_CATEGORY_LENGTH + " символов";
+        }
+        if (recipe.getIngredients() == null || recipe.getIngredients().isEmpty()) {
+            return "Не указаны ингредиенты";
+        }
+        for (IngredientDto ingredient : recipe.getIngredients()) {
+            if (ingredient == null || ingredient.getProductName() == null || ingredient.getProductName().isBlank()) {
+                return "Не указан продукт ингредиента";
+            }
+            if (longerThan(ingredient.getProductName(), MAX_PRODUCT_NAME_LENGTH)) {
+                return "Название продукта длиннее " + MAX_PRODUCT_NAME_LENGTH + " символов";
+            }
+            if (longerThan(ingredient.getUnit(), MAX_UNIT_LENGTH)) {
+                return "Единица измерения продукта " + ingredient.getProductName() + " длиннее "
+                        + MAX_UNIT_LENGTH + " символов";
+            }
+            if (ingredient.getQuantity() == null || ingredient.getQuantity().signum() < 0
+                    || !Quantities.fitsColumn(ingredient.getQuantity())) {
+                return "Некорректное количество продукта " + ingredient.getProductName();
+            }
+        }
+        return null;
+    }
+
+    private static boolean longerThan(String value, int maxLength) {
+        return value != null && value.codePointCount(0, value.length()) > maxLength;
+    }
+
+    private List<Long> allocateRecipeIds(int count) {
+        return jdbcTemplate.queryForList(
+                "SELECT nextval(pg_get_serial_sequence('recipe', 'id')) FROM generate_series(1, ?)",
+                Long.class,
+                count
+        );
+    }
+
+    private record PendingRecipe(int line, RecipeInputDto recipe) {
+    }
+
+    private final class Import {
+        private final long startedAt = System.nanoTime();
+        private final Map<String, ProductEntity> productsByName = new HashMap<>();
+        private final List<RecipeImportResponse.LineError> errors = new ArrayList<>();
+        private List<PendingRecipe> pending = new ArrayList<>(CHUNK_SIZE);
+        private int imported;
+        private int failed;
+
+        private void accept(int line, RecipeInputDto recipe) {
+            String error = validate(recipe);
+            if (error != null) {
+                fail(line, error);
+                return;
+            }
+            pending.add(new PendingRecipe(line, recipe));
+            if (pending.size() == CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        private void fail(int line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RecipeImportResponse.LineError(line, message));
+            }
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<PendingRecipe> chunk = pending;
+            pending = new ArrayList<>(CHUNK_SIZE);
+            try {
+                resolveProducts(chunk);
+            } catch (RuntimeException e) {
+                log.warn("Failed to resolve products of recipes from line {}", chunk.getFirst().line(), e);
+                chunk.forEach(r -> fail(r.line(), "Не удалось сопоставить продукты рецепта"));
+                return;
+            }
+            save(chunk);
+        }
+
+        /**
+         * Inserts the recipes in one transaction. A chunk rejected by a constraint is retried in halves
+         * down to single recipes, so only the offending lines fail.
+         */
+        private void save(List<PendingRecipe> chunk) {
+            List<RecipeEntity> saved;
+            try {
+                saved = transactionTemplate.execute(status -> insert(chunk));
+            } catch (DataIntegrityViolationException e) {
+                if (chunk.size() == 1) {
+                    log.warn("Failed to import recipe from line {}", chunk.getFirst().line(), e);
+                    fail(chunk.getFirst().line(), "Рецепт нарушает ограничения базы данных");
+                    return;
+                }
+                int half = chunk.size() / 2;
+                save(chunk.subList(0, half));
+                save(chunk.subList(half, chunk.size()));
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Failed to import recipes from line {}", chunk.getFirst().line(), e);
+                chunk.forEach(r -> fail(r.line(), "Ошибка при сохранении рецепта"));
+                return;
+            }
+            recipeProductIndex.registerAll(saved);
+            imported += saved.size();
+        }
+
+        private void resolveProducts(List<PendingRecipe> chunk) {
+            List<ProductElasticService.ProductKey> unresolved = new ArrayList<>();
+            for (PendingRecipe pendingRecipe : chunk) {
+                for (IngredientDto ingredient : pendingRecipe.recipe().getIngredients()) {
+                    String name = ingredient.getProductName().toLowerCase();
+                    if (!productsByName.containsKey(name)) {
+                        unresolved.add(new ProductElasticService.ProductKey(name, ingredient.getUnit()));
+                    }
+                }
+            }
+            if (!unresolved.isEmpty()) {
+                productsByName.putAll(productElasticService.findOrCreateAll(unresolved));
+            }
+        }
+
+        private List<RecipeEntity> insert(List<PendingRecipe> chunk) {
+            List<Long> ids = allocateRecipeIds(chunk.size());
+            List<RecipeEntity> recipes = new ArrayList<>(chunk.size());
+            List<Object[]> recipeRows = new ArrayList<>(chunk.size());
+            List<Object[]> ingredientRows = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                RecipeInputDto input = chunk.get(i).recipe();
+                RecipeEntity recipe = new RecipeEntity(input.getTitle(), input.getCategory(), input.getDescription());
+                recipe.setId(ids.get(i));
+                List<IngredientEntity> ingredients = new ArrayList<>(input.getIngredients().size());
+                for (IngredientDto dto : input.getIngredients()) {
+                    ProductEntity product = productsByName.get(dto.getProductName().toLowerCase());
+                    IngredientEntity ingredient = new IngredientEntity();
+                    ingredient.setRecipe(recipe);
+                    ingredient.setProduct(product);
+                    ingredient.setQuantity(dto.getQuantity());
+                    ingredients.add(ingredient);
+                    ingredientRows.add(new Object[]{recipe.getId(), product.getId(), dto.getQuantity()});
+                }
+                recipe.setIngredients(ingredients);
+                recipes.add(recipe);
+                recipeRows.add(new Object[]{recipe.getId(), recipe.getTitle(), recipe.getDescription(), recipe.getCategory()});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO recipe (id, title, description, category) VALUES (?, ?, ?, ?)", recipeRows);
+            jdbcTemplate.batchUpdate("INSERT INTO ingredient (recipe_id, product_id, quantity) VALUES (?, ?, ?)", ingredientRows);
+            return recipes;
+        }
+
+        private RecipeImportResponse finish() {
+            flush();
+            if (imported > 0) {
+                recipeSearchCache.invalidateAll();
+            }
+            long elapsed = System.nanoTime() - startedAt;
+            double seconds = Math.max(elapsed, 1) / 1_000_000_000d;
+            double recipesPerSecond = imported / seconds;
+            Timer.builder("recipe.import").register(meterRegistry).record(elapsed, TimeUnit.NANOSECONDS);
+            meterRegistry.counter("recipe.import.recipes", "result", "imported").increment(imported);
+            meterRegistry.counter("recipe.import.recipes", "result", "failed").increment(failed);
+            log.info("Imported {} recipes ({} failed) in {} ms, {} recipes/s",
+                    imported, failed, TimeUnit.NANOSECONDS.toMillis(elapsed), Math.round(recipesPerSecond));
+            return new RecipeImportResponse(imported, failed, recipesPerSecond, List.copyOf(errors));
+        }
+    }
+}
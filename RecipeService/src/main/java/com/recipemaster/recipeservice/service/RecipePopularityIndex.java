@@ -0,0 +1,274 @@
+package com.recipemaster.recipeservice.service;
+
+import com.recipemaster.dto.PopularRecipeDto;
+import com.recipemaster.dto.RecipeSummaryDto;
+import com.recipemaster.recipeservice.config.RecipePopularityProperties;
+import com.recipemaster.recipeservice.repository.RecipeRepository;
+import com.recipemaster.recipeservice.utils.ScoredIdTopK;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Favorite counts per recipe and the most favorited recipes, overall and per category.
+ * Committed favorite toggles only bump a striped per-recipe counter; the accumulated deltas are written
+ * to recipe_stats in one statement every {@code recipe.popularity.flush-interval}. The top lists are
+ * recomputed after each write and from the whole table every {@code recipe.popularity.reload-interval},
+ * so every instance also sees the counts the others flushed.
+ * <p>
+ * recipe_stats is recounted from favorite_recipe on startup, which repairs deltas lost in a crash and
+ * favorites removed by cascading deletes. Deltas another instance recorded but has not flushed at that
+ * moment are counted twice until the next recount.
+ */
+@Slf4j
+@Component
+public class RecipePopularityIndex {
+    // Serializes recounts of instances starting at the same time
+    private static final String RECOUNT_LOCK_SQL = "SELECT pg_advisory_xact_lock(7342001)";
+    private static final String CLEAR_SQL = "DELETE FROM recipe_stats";
+    private static final String RECOUNT_SQL = """
+            INSERT INTO recipe_stats (recipe_id, favorite_count, updated_at)
+            SELECT recipe_id, count(*), now() FROM favorite_recipe GROUP BY recipe_id
+            """;
+    private static final String LOAD_SQL = """
+            SELECT rs.recipe_id, r.category, rs.favorite_count
+            FROM recipe_stats rs
+            JOIN recipe r ON r.id = rs.recipe_id
+            """;
+    // Deltas of several instances add up; rows of recipes deleted in the meantime are skipped
+    private static final String FLUSH_SQL = """
+            WITH upserted AS (
+                INSERT INTO recipe_stats AS rs (recipe_id, favorite_count, updated_at)
+                SELECT d.recipe_id, d.delta, now()
+                FROM unnest(?::bigint[], ?::bigint[]) AS d(recipe_id, delta)
+                JOIN recipe r ON r.id = d.recipe_id
+                ON CONFLICT (recipe_id) DO UPDATE
+                    SET favorite_count = rs.favorite_count + EXCLUDED.favorite_count, updated_at = now()
+                RETURNING rs.recipe_id, rs.favorite_count
+            )
+            SELECT u.recipe_id, r.category, u.favorite_count
+            FROM upserted u
+            JOIN recipe r ON r.id = u.recipe_id
+            """;
+    private static final RowMapper<RecipeCount> ROW_MAPPER = (rs, rowNum) ->
+            new RecipeCount(rs.getLong("recipe_id"), rs.getString("category"), rs.getLong("favorite_count"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RecipeRepository recipeRepository;
+    private final RecipePopularityProperties properties;
+    private final Counter flushed;
+
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    // Guarded by this; only touched by rebuild, reload and flush
+    private final Map<Long, RecipeCount> counts = new HashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(List.of(), Map.of());
+
+    public RecipePopularityIndex(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 RecipeRepository recipeRepository,
+                                 RecipePopularityProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.recipeRepository = recipeRepository;
+        this.properties = properties;
+        this.flushed = meterRegistry.counter("recipe.popularity.flushed");
+    }
+
+    public void favoriteAdded(Long recipeId) {
+        recordAfterCommit(recipeId, 1);
+    }
+
+    public void favoriteRemoved(Long recipeId) {
+        recordAfterCommit(recipeId, -1);
+    }
+
+    /**
+     * @param category only recipes of this category, or all recipes when {@code null} or empty
+     * @return up to {@code limit} most favorited recipes, most favorited first
+     */
+    public List<PopularRecipeDto> getPopular(String category, int limit) {
+        if (limit <= 0 || limit > properties.topK()) {
+            throw new IllegalArgumentException("Количество рецептов должно быть от 1 до " + properties.topK());
+        }
+        Snapshot current = snapshot;
+        List<PopularRecipeDto> top = (category == null || category.isEmpty())
+                ? current.overall()
+                : current.byCategory().getOrDefault(category, List.of());
+        return top.subList(0, Math.min(limit, top.size()));
+    }
+
+    /**
+     * Recounts recipe_stats from favorite_recipe and loads it. A failed recount leaves the table as it was.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute(RECOUNT_LOCK_SQL);
+                jdbcTemplate.update(CLEAR_SQL);
+                // Deltas recorded so far were committed before the recount statement starts, so it counts
+                // them; only deltas recorded from here on are added on top
+                pending.values().forEach(LongAdder::reset);
+                jdbcTemplate.update(RECOUNT_SQL);
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to recount recipe popularity, keeping the stored counts", e);
+        }
+        reload();
+        log.info("Recipe popularity rebuilt: {} favorited recipes", counts.size());
+    }
+
+    /**
+     * Replaces the counts with the whole of recipe_stats, including what other instances flushed.
+     */
+    @Scheduled(initialDelayString = "${recipe.popularity.reload-interval:5m}",
+            fixedDelayString = "${recipe.popularity.reload-interval:5m}")
+    public synchronized void reload() {
+        List<RecipeCount> loaded;
+        try {
+            loaded = jdbcTemplate.query(LOAD_SQL, ROW_MAPPER);
+        } catch (RuntimeException e) {
+            log.warn("Failed to reload recipe popularity, keeping the current counts", e);
+            return;
+        }
+        counts.clear();
+        for (RecipeCount count : loaded) {
+            counts.put(count.recipeId(), count);
+        }
+        publish();
+    }
+
+    @Scheduled(initialDelayString = "${recipe.popularity.flush-interval:30s}",
+            fixedDelayString = "${recipe.popularity.flush-interval:30s}")
+    @PreDestroy
+    public synchronized void flush() {
+        List<Long> recipeIds = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        // Adders stay in the map: removing one could drop an increment racing with the removal
+        pending.forEach((recipeId, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta != 0) {
+                recipeIds.add(recipeId);
+                deltas.add(delta);
+            }
+        });
+        if (recipeIds.isEmpty()) {
+            return;
+        }
+        Long[] ids = recipeIds.toArray(Long[]::new);
+        Long[] amounts = deltas.toArray(Long[]::new);
+        List<RecipeCount> updated;
+        try {
+            updated = jdbcTemplate.query(FLUSH_SQL,
+                    ps -> {
+                        ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+                        ps.setArray(2, ps.getConnection().createArrayOf("bigint", amounts));
+                    },
+                    ROW_MAPPER);
+        } catch (RuntimeException e) {
+            for (int i = 0; i < ids.length; i++) {
+                pending.computeIfAbsent(ids[i], id -> new LongAdder()).add(amounts[i]);
+            }
+            log.warn("Failed to flush favorite counts of {} recipes, will retry", ids.length, e);
+            return;
+        }
+        for (RecipeCount count : updated) {
+            counts.put(count.recipeId(), count);
+        }
+        flushed.increment(updated.size());
+        publish();
+    }
+
+    /**
+     * Inside a transaction the delta is recorded once it commits, so a rolled back toggle is not counted.
+     */
+    private void recordAfterCommit(Long recipeId, long delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending.computeIfAbsent(recipeId, id -> new LongAdder()).add(delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pending.computeIfAbsent(recipeId, id -> new LongAdder()).add(delta);
+            }
+        });
+    }
+
+    /**
+     * Recomputes the top lists from {@link #counts} and swaps them in with their titles.
+     */
+    private void publish() {
+        int k = properties.topK();
+        ScoredIdTopK overall = new ScoredIdTopK(k);
+        Map<String, ScoredIdTopK> byCategory = new HashMap<>();
+        for (RecipeCount count : counts.values()) {
+            if (count.favoriteCount() <= 0) {
+                continue;
+            }
+            overall.offer(count.recipeId(), count.favoriteCount());
+            if (count.category() != null) {
+                byCategory.computeIfAbsent(count.category(), c -> new ScoredIdTopK(k))
+                        .offer(count.recipeId(), count.favoriteCount());
+            }
+        }
+        List<ScoredIdTopK.Scored> overallTop = overall.drainSorted();
+        Map<String, List<ScoredIdTopK.Scored>> categoryTops = new HashMap<>();
+        Set<Long> ids = new HashSet<>();
+        overallTop.forEach(scored -> ids.add(scored.id()));
+        byCategory.forEach((category, top) -> {
+            List<ScoredIdTopK.Scored> sorted = top.drainSorted();
+            sorted.forEach(scored -> ids.add(scored.id()));
+            categoryTops.put(category, sorted);
+        });
+        Map<Long, RecipeSummaryDto> summaries = ids.isEmpty()
+                ? Map.of()
+                : recipeRepository.findSummariesByIdIn(ids).stream()
+                        .collect(Collectors.toMap(RecipeSummaryDto::getId, Function.identity()));
+
+        Map<String, List<PopularRecipeDto>> categories = new HashMap<>();
+        categoryTops.forEach((category, top) -> categories.put(category, toDtos(top, summaries)));
+        snapshot = new Snapshot(toDtos(overallTop, summaries), Map.copyOf(categories));
+    }
+
+    private List<PopularRecipeDto> toDtos(List<ScoredIdTopK.Scored> top, Map<Long, RecipeSummaryDto> summaries) {
+        List<PopularRecipeDto> dtos = new ArrayList<>(top.size());
+        for (ScoredIdTopK.Scored scored : top) {
+            RecipeSummaryDto summary = summaries.get(scored.id());
+            if (summary != null) {
+                dtos.add(new PopularRecipeDto(summary.getId(), summary.getTitle(), summary.getDescription(),
+                        summary.getCategory(), counts.get(scored.id()).favoriteCount()));
+            }
+        }
+        return List.copyOf(dtos);
+    }
+
+    public record RecipeCount(long recipeId, String category, long favoriteCount) {
+    }
+
+    private record Snapshot(List<PopularRecipeDto> overall, Map<String, List<PopularRecipeDto>> byCategory) {
+    }
+}
@@ -0,0 +1,227 @@
+package com.recipemaster.recipeservice.service;
+
+import com.recipemaster.entities.IngredientEntity;
+import com.recipemaster.entities.RecipeEntity;
+import com.recipemaster.recipeservice.repository.RecipeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index: product id -> recipes that use the product.
+ * Each recipe is kept as a {@link RecipeVector} in a dense slot, so pantry search can
+ * score only recipes sharing at least one product with the user, without touching the database.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecipeProductIndex {
+    private final RecipeRepository recipeRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Slots slots = new Slots();
+    // Recipes registered while a rebuild reads the table; null when no rebuild is running
+    private List<RecipeVector> registeredDuringRebuild;
+
+    @Transactional(readOnly = true)
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        setRegisteredDuringRebuild(new ArrayList<>());
+        try {
+            rebuildSlots();
+        } finally {
+            setRegisteredDuringRebuild(null);
+        }
+    }
+
+    private void rebuildSlots() {
+        Slots rebuilt = new Slots();
+        try (Stream<RecipeRepository.RecipeProductLink> links = recipeRepository.streamAllRecipeProductLinks()) {
+            Iterator<RecipeRepository.RecipeProductLink> iterator = links.iterator();
+            VectorBuilder current = null;
+            while (iterator.hasNext()) {
+                RecipeRepository.RecipeProductLink link = iterator.next();
+                if (current == null || current.recipeId != link.getRecipeId()) {
+                    if (current != null) {
+                        rebuilt.add(current.build());
+                    }
+                    current = new VectorBuilder(link.getRecipeId());
+                }
+                current.add(link.getProductId(), link.getQuantity());
+            }
+            if (current != null) {
+                rebuilt.add(current.build());
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            // The stream may have missed recipes registered meanwhile
+            registeredDuringRebuild.forEach(rebuilt::add);
+            slots = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Recipe product index rebuilt: {} recipes, {} products", rebuilt.size, rebuilt.postings.size());
+    }
+
+    public void register(RecipeEntity recipe) {
+        registerAll(List.of(recipe));
+    }
+
+    public void registerAll(Collection<RecipeEntity> recipes) {
+        List<RecipeVector> vectors = new ArrayList<>(recipes.size());
+        for (RecipeEntity recipe : recipes) {
+            VectorBuilder builder = new VectorBuilder(recipe.getId());
+            for (IngredientEntity ingredient : recipe.getIngredients()) {
+                builder.add(ingredient.getProduct().getId(), ingredient.getQuantity());
+            }
+            vectors.add(builder.build());
+        }
+        lock.writeLock().lock();
+        try {
+            vectors.forEach(slots::add);
+            if (registeredDuringRebuild != null) {
+                registeredDuringRebuild.addAll(vectors);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void setRegisteredDuringRebuild(List<RecipeVector> registered) {
+        lock.writeLock().lock();
+        try {
+            registeredDuringRebuild = registered;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the recipes containing any of the given products.
+     */
+    public Candidates findCandidates(Collection<Long> productIds) {
+        lock.readLock().lock();
+        try {
+            BitSet matched = new BitSet(slots.size);
+            for (Long productId : productIds) {
+                Postings postings = slots.postings.get(productId);
+                if (postings != null) {
+                    for (int i = 0; i < postings.size; i++) {
+                        matched.set(postings.slots[i]);
+                    }
+                }
+            }
+            return new Candidates(slots.recipes, matched);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A recipe's ingredients as parallel arrays; {@code quantities[i]} is needed of {@code productIds[i]}.
+     */
+    public record RecipeVector(long recipeId, long[] productIds, double[] quantities) {
+    }
+
+    /**
+     * Snapshot of matched slots. {@code recipes} may be longer than the matched range,
+     * but every set bit points at an immutable vector.
+     */
+    public record Candidates(RecipeVector[] recipes, BitSet slots) {
+
+        public boolean isEmpty() {
+            return slots.isEmpty();
+        }
+
+        public int size() {
+            return slots.cardinality();
+        }
+
+        public List<Long> recipeIds() {
+            List<Long> ids = new ArrayList<>(size());
+            for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                ids.add(recipes[slot].recipeId());
+            }
+            return ids;
+        }
+    }
+
+    private static final class Slots {
+        private final Map<Long, Integer> slotByRecipeId = new HashMap<>();
+        private final Map<Long, Postings> postings = new HashMap<>();
+        private RecipeVector[] recipes = new RecipeVector[1024];
+        private int size;
+
+        private void add(RecipeVector vector) {
+            if (slotByRecipeId.containsKey(vector.recipeId())) {
+                return;
+            }
+            if (size == recipes.length) {
+                recipes = Arrays.copyOf(recipes, size << 1);
+            }
+            int slot = size++;
+            recipes[slot] = vector;
+            slotByRecipeId.put(vector.recipeId(), slot);
+            for (long productId : vector.productIds()) {
+                postings.computeIfAbsent(productId, id -> new Postings()).add(slot);
+            }
+        }
+    }
+
+    private static final class Postings {
+        private int[] slots = new int[4];
+        private int size;
+
+        private void add(int slot) {
+            if (size > 0 && slots[size - 1] == slot) {
+                return;
+            }
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size << 1);
+            }
+            slots[size++] = slot;
+        }
+    }
+
+    private static final class VectorBuilder {
+        private final long recipeId;
+        private long[] productIds = new long[4];
+        private double[] quantities = new double[4];
+        private int size;
+
+        private VectorBuilder(long recipeId) {
+            this.recipeId = recipeId;
+        }
+
+        private void add(long productId, BigDecimal quantity) {
+            if (size == productIds.length) {
+                productIds = Arrays.copyOf(productIds, size << 1);
+                quantities = Arrays.copyOf(quantities, size << 1);
+            }
+            productIds[size] = productId;
+            quantities[size] = quantity.doubleValue();
+            size++;
+        }
+
+        private RecipeVector build() {
+            return new RecipeVector(recipeId, Arrays.copyOf(productIds, size), Arrays.copyOf(quantities, size));
+        }
+    }
+}
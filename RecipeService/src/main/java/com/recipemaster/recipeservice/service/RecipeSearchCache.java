@@ -0,0 +1,103 @@
+package com.recipemaster.recipeservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.recipemaster.dto.RecipeDto;
+import com.recipemaster.entities.RecipeEntity;
+import com.recipemaster.recipeservice.config.RecipeSearchProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * Per-user cache of pantry search results. An entry keeps the pantry it was computed for,
+ * so a new recipe only evicts users whose cached pages it could actually enter.
+ */
+@Component
+public class RecipeSearchCache {
+    public static final String CACHE_NAME = "recipeSearch";
+
+    private final Cache<Long, UserSearches> cache;
+    private final Counter pageHits;
+    private final Counter pageMisses;
+
+    public RecipeSearchCache(RecipeSearchProperties recipeSearchProperties, MeterRegistry meterRegistry) {
+        RecipeSearchProperties.Cache config = recipeSearchProperties.cache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.maximumSize())
+                .expireAfterWrite(config.ttl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.pageHits = meterRegistry.counter("recipe.search.cache.pages", "result", "hit");
+        this.pageMisses = meterRegistry.counter("recipe.search.cache.pages", "result", "miss");
+    }
+
+    public List<RecipeDto> get(Long userId,
+                               int offset,
+                               int limit,
+                               Function<Long, Map<Long, BigDecimal>> pantryLoader,
+                               PageLoader pageLoader) {
+        UserSearches searches = cache.get(userId, id -> new UserSearches(pantryLoader.apply(id)));
+        Page page = new Page(offset, limit);
+        CachedPage cached = searches.pages().get(page);
+        if (cached != null) {
+            pageHits.increment();
+            return cached.recipes();
+        }
+        pageMisses.increment();
+        return searches.pages()
+                .computeIfAbsent(page, p -> pageLoader.load(userId, searches.pantry(), offset, limit))
+                .recipes();
+    }
+
+    public void invalidateUser(Long userId) {
+        cache.invalidate(userId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public void onRecipeAdded(RecipeEntity recipe, ToDoubleBiFunction<RecipeEntity, Map<Long, BigDecimal>> scorer) {
+        cache.asMap().forEach((userId, searches) -> {
+            double score = scorer.applyAsDouble(recipe, searches.pantry());
+            if (score > 0 && searches.pages().values().stream().anyMatch(page -> page.couldAdmit(score))) {
+                cache.invalidate(userId);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    public interface PageLoader {
+        CachedPage load(Long userId, Map<Long, BigDecimal> pantry, int offset, int limit);
+    }
+
+    public record CachedPage(List<RecipeDto> recipes, double lowestScore, int limit) {
+
+        public static CachedPage empty(int limit) {
+            return new CachedPage(List.of(), 0, limit);
+        }
+
+        boolean couldAdmit(double score) {
+            return recipes.size() < limit || score >= lowestScore;
+        }
+    }
+
+    private record Page(int offset, int limit) {
+    }
+
+    private record UserSearches(Map<Long, BigDecimal> pantry, Map<Page, CachedPage> pages) {
+        UserSearches(Map<Long, BigDecimal> pantry) {
+            this(pantry, new ConcurrentHashMap<>());
+        }
+    }
+}
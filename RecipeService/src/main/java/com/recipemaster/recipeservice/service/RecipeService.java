@@ -1,35 +1,116 @@
 package com.recipemaster.recipeservice.service;
 
+import com.recipemaster.dto.IngredientDto;
 import com.recipemaster.dto.RecipeDto;
 import com.recipemaster.dto.RecipeInputDto;
+import com.recipemaster.dto.RecipeSummaryDto;
+import com.recipemaster.dto.UserProductInfoDto;
+import com.recipemaster.dto.responses.FavoriteRecipePageResponse;
+import com.recipemaster.dto.responses.RecipePageResponse;
 import com.recipemaster.entities.*;
+import com.recipemaster.enums.ErrorMessage;
+import com.recipemaster.recipeservice.config.RecipeSearchProperties;
+import com.recipemaster.recipeservice.config.RecipeSearchProperties.ScoringStrategy;
 import com.recipemaster.recipeservice.repository.RecipeRepository;
-import com.recipemaster.recipeservice.repository.UserRepository;
 import com.recipemaster.recipeservice.repository.UsersProductRepository;
-import jakarta.transaction.Transactional;
+import com.recipemaster.recipeservice.utils.LongDoubleHashMap;
+import com.recipemaster.recipeservice.utils.ScoredIdTopK;
+import com.recipemaster.recipeservice.utils.SqlErrors;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.recipemaster.recipeservice.mapper.RecipeMapper.recipeDTOToRecipeEntity;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class RecipeService {
     private final RecipeRepository recipeRepository;
-    private final UserRepository userRepository;
     private final UsersProductRepository usersProductRepository;
     private final ProductElasticService productElasticService;
+    private final RecipeProductIndex recipeProductIndex;
+    private final RecipeSearchProperties recipeSearchProperties;
+    private final RecipeSearchCache recipeSearchCache;
+    private final ParallelRecipeScorer parallelRecipeScorer;
+    private final RecipePopularityIndex recipePopularityIndex;
+    private final MeterRegistry meterRegistry;
     private static final int TOP_N = 5;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_SEARCH_WINDOW = 1000;
+    private static final int MAX_PAGE_SIZE = 500;
+    // Recipes the legacy kernel loads per query; bounds the IN list and the entities held at once
+    private static final int LEGACY_KERNEL_CHUNK = 1000;
 
-    public List<RecipeDto> getAllRecipes(String category) {
-        List<RecipeEntity> recipes = (category == null || category.isEmpty())
-                ? recipeRepository.findAll()
-                : recipeRepository.findByCategory(category);
-        return recipes.stream().map(RecipeDto::fromEntity).toList();
+    public RecipePageResponse getRecipesPage(String category, Long afterId, int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE || (afterId != null && afterId < 0)) {
+            throw new IllegalArgumentException("Некорректные параметры пагинации: afterId=" + afterId + ", size=" + size);
+        }
+        long cursor = afterId == null ? 0 : afterId;
+        List<Long> ids = (category == null || category.isEmpty())
+                ? recipeRepository.findIdsAfter(cursor, Limit.of(size))
+                : recipeRepository.findIdsByCategoryAfter(category, cursor, Limit.of(size));
+        if (ids.isEmpty()) {
+            return new RecipePageResponse(List.of(), null);
+        }
+        List<RecipeDto> items = recipeRepository.findWithIngredientsByIdIn(ids).stream()
+                .sorted(Comparator.comparing(RecipeEntity::getId))
+                .map(RecipeDto::fromEntity)
+                .toList();
+        Long nextAfterId = ids.size() == size ? ids.getLast() : null;
+        return new RecipePageResponse(items, nextAfterId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamRecipes(String category, Consumer<RecipeDto> consumer) {
+        String filter = (category == null || category.isEmpty()) ? null : category;
+        try (Stream<RecipeRepository.RecipeRow> rows = recipeRepository.streamRecipeRows(filter)) {
+            RecipeDto current = null;
+            for (Iterator<RecipeRepository.RecipeRow> it = rows.iterator(); it.hasNext(); ) {
+                RecipeRepository.RecipeRow row = it.next();
+                if (current == null || !current.getId().equals(row.getId())) {
+                    if (current != null) {
+                        consumer.accept(current);
+                    }
+                    current = toRecipeDto(row);
+                }
+                if (row.getProductName() != null) {
+                    current.getIngredients().add(toIngredientDto(row));
+                }
+            }
+            if (current != null) {
+                consumer.accept(current);
+            }
+        }
+    }
+
+    private static RecipeDto toRecipeDto(RecipeRepository.RecipeRow row) {
+        RecipeDto dto = new RecipeDto();
+        dto.setId(row.getId());
+        dto.setTitle(row.getTitle());
+        dto.setDescription(row.getDescription());
+        dto.setCategory(row.getCategory());
+        dto.setIngredients(new ArrayList<>());
+        return dto;
+    }
+
+    private static IngredientDto toIngredientDto(RecipeRepository.RecipeRow row) {
+        IngredientDto dto = new IngredientDto();
+        dto.setProductName(row.getProductName());
+        dto.setQuantity(row.getQuantity());
+        dto.setUnit(row.getUnit());
+        return dto;
     }
 
     public RecipeDto addRecipe(RecipeInputDto recipeDto) {
@@ -40,60 +121,139 @@ public class RecipeService {
             throw new NoSuchElementException("Ingredients not provided");
         }
         RecipeEntity recipe = recipeDTOToRecipeEntity(recipeDto);
+        Map<String, ProductEntity> products = productElasticService.findOrCreateAll(recipeDto.getIngredients().stream()
+                .map(rd -> new ProductElasticService.ProductKey(rd.getProductName().toLowerCase(), rd.getUnit()))
+                .toList());
         List<IngredientEntity> ingredients = recipeDto.getIngredients().stream()
                 .map(rd -> {
-                    ProductEntity product = productElasticService.findOrCreate(
-                            rd.getProductName().toLowerCase(),
-                            rd.getUnit()
-                    );
-
                     IngredientEntity ing = new IngredientEntity();
                     ing.setRecipe(recipe);
                     ing.setQuantity(rd.getQuantity());
-                    ing.setProduct(product);
+                    ing.setProduct(products.get(rd.getProductName().toLowerCase()));
                     return ing;
                 })
                 .toList();
 
         recipe.setIngredients(ingredients);
         RecipeEntity saved = recipeRepository.save(recipe);
+        recipeProductIndex.register(saved);
+        recipeSearchCache.onRecipeAdded(saved, this::calculateMatchedCount);
         return RecipeDto.fromEntity(saved);
     }
 
 
     public List<RecipeDto> searchRecipesByUserProducts(Long userId) {
-        Map<String, BigDecimal> userProductNames = fetchUserProductNames(userId);
-        if (userProductNames.isEmpty()) {
-            return Collections.emptyList();
+        return searchRecipesByUserProducts(userId, 0, TOP_N);
+    }
+
+    public List<RecipeDto> searchRecipesByUserProducts(Long userId, int offset, int limit) {
+        if (offset < 0 || limit <= 0 || limit > MAX_SEARCH_LIMIT || offset + limit > MAX_SEARCH_WINDOW) {
+            throw new IllegalArgumentException("Некорректные параметры пагинации: offset=" + offset + ", limit=" + limit);
         }
-        return buildTopRecipeMatches(userProductNames);
+        return recipeSearchCache.get(userId, offset, limit, this::fetchUserPantry, this::findTopRecipeMatches);
     }
 
-    private Map<String, BigDecimal> fetchUserProductNames(Long userId) {
-        return usersProductRepository.findAllByUserId(userId).stream()
+    private Map<Long, BigDecimal> fetchUserPantry(Long userId) {
+        return usersProductRepository.findProductInfoByUserId(userId).stream()
                 .collect(Collectors.toMap(
-                        up -> up.getProduct().getName(),
-                        UsersProductEntity::getQuantity,
+                        UserProductInfoDto::getId,
+                        UserProductInfoDto::getQuantity,
                         BigDecimal::add
                 ));
     }
 
-    private List<RecipeDto> buildTopRecipeMatches(Map<String, BigDecimal> userProductNames) {
-        return recipeRepository.findAll().stream()
-                .map(recipe -> Map.entry(recipe, calculateMatchedCount(recipe, userProductNames)))
-                .filter(recipe -> recipe.getValue()>0)
-                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                .limit(TOP_N)
-                .map(recipe -> RecipeDto.fromEntity(recipe.getKey()))
+    private RecipeSearchCache.CachedPage findTopRecipeMatches(Long userId,
+                                                              Map<Long, BigDecimal> userPantry,
+                                                              int offset,
+                                                              int limit) {
+        if (userPantry.isEmpty()) {
+            return RecipeSearchCache.CachedPage.empty(limit);
+        }
+        if (recipeSearchProperties.scoring() == ScoringStrategy.DATABASE) {
+            List<ScoredIdTopK.Scored> page = recipeRepository.findTopMatchesByUserId(userId, limit, offset).stream()
+                    .map(score -> new ScoredIdTopK.Scored(score.getRecipeId(), score.getScore()))
+                    .toList();
+            return hydrateInScoreOrder(page, limit);
+        }
+        RecipeProductIndex.Candidates candidates = recipeProductIndex.findCandidates(userPantry.keySet());
+        if (candidates.isEmpty()) {
+            return RecipeSearchCache.CachedPage.empty(limit);
+        }
+        List<ScoredIdTopK.Scored> ranked = buildTopRecipeMatches(candidates, userPantry, offset + limit);
+        return hydrateInScoreOrder(ranked.subList(Math.min(offset, ranked.size()), ranked.size()), limit);
+    }
+
+    private List<ScoredIdTopK.Scored> buildTopRecipeMatches(RecipeProductIndex.Candidates candidates,
+                                                            Map<Long, BigDecimal> userPantry,
+                                                            int window) {
+        return switch (recipeSearchProperties.kernel()) {
+            case LEGACY -> rankWithLegacyKernel(candidates, userPantry, window);
+            case PRIMITIVE -> rankWithPrimitiveKernel(candidates, userPantry, window);
+            case COMPARE -> compareKernels(candidates, userPantry, window);
+        };
+    }
+
+    private List<ScoredIdTopK.Scored> rankWithLegacyKernel(RecipeProductIndex.Candidates candidates,
+                                                           Map<Long, BigDecimal> userPantry,
+                                                           int window) {
+        ScoredIdTopK top = new ScoredIdTopK(window);
+        List<Long> ids = candidates.recipeIds();
+        for (int from = 0; from < ids.size(); from += LEGACY_KERNEL_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + LEGACY_KERNEL_CHUNK, ids.size()));
+            for (RecipeEntity recipe : recipeRepository.findWithIngredientsByIdIn(chunk)) {
+                double matchedCount = calculateMatchedCount(recipe, userPantry);
+                if (matchedCount > 0) {
+                    top.offer(recipe.getId(), matchedCount);
+                }
+            }
+        }
+        return top.drainSorted();
+    }
+
+    private List<ScoredIdTopK.Scored> rankWithPrimitiveKernel(RecipeProductIndex.Candidates candidates,
+                                                              Map<Long, BigDecimal> userPantry,
+                                                              int window) {
+        LongDoubleHashMap pantry = PrimitiveRecipeScorer.toPantryVector(userPantry);
+        if (parallelRecipeScorer.shouldParallelize(candidates)) {
+            return parallelRecipeScorer.rank(candidates, pantry, window).drainSorted();
+        }
+        return PrimitiveRecipeScorer.rank(candidates, pantry, 0, candidates.slots().length(), window).drainSorted();
+    }
+
+    private List<ScoredIdTopK.Scored> compareKernels(RecipeProductIndex.Candidates candidates,
+                                                     Map<Long, BigDecimal> userPantry,
+                                                     int window) {
+        List<ScoredIdTopK.Scored> legacy = rankWithLegacyKernel(candidates, userPantry, window);
+        List<ScoredIdTopK.Scored> primitive = rankWithPrimitiveKernel(candidates, userPantry, window);
+        if (!legacy.equals(primitive)) {
+            meterRegistry.counter("recipe.search.kernel.mismatches").increment();
+            log.warn("Scoring kernels disagree on {} candidates: legacy={}, primitive={}",
+                    candidates.size(), legacy, primitive);
+        }
+        return legacy;
+    }
+
+    private RecipeSearchCache.CachedPage hydrateInScoreOrder(List<ScoredIdTopK.Scored> page, int limit) {
+        if (page.isEmpty()) {
+            return RecipeSearchCache.CachedPage.empty(limit);
+        }
+        List<Long> ids = page.stream().map(ScoredIdTopK.Scored::id).toList();
+        Map<Long, RecipeEntity> recipesById = recipeRepository.findWithIngredientsByIdIn(ids).stream()
+                .collect(Collectors.toMap(RecipeEntity::getId, Function.identity()));
+        List<RecipeDto> recipes = ids.stream()
+                .map(recipesById::get)
+                .filter(Objects::nonNull)
+                .map(RecipeDto::fromEntity)
                 .toList();
+        return new RecipeSearchCache.CachedPage(recipes, page.getLast().score(), limit);
     }
 
-    private Double calculateMatchedCount(RecipeEntity recipe, Map<String, BigDecimal> userProductNames) {
+    private Double calculateMatchedCount(RecipeEntity recipe, Map<Long, BigDecimal> userPantry) {
         return recipe.getIngredients().stream()
                 .mapToDouble(i -> {
                     BigDecimal needed = i.getQuantity();
-                    BigDecimal available = userProductNames.getOrDefault(
-                            i.getProduct().getName(),
+                    BigDecimal available = userPantry.getOrDefault(
+                            i.getProduct().getId(),
                             BigDecimal.ZERO
                     );
                     if (needed.compareTo(BigDecimal.ZERO) <= 0) {
@@ -107,27 +267,51 @@ public class RecipeService {
 
     @Transactional
     public RecipeDto addRecipeToFavorites(Long userId, Long recipeId) {
-        UserEntity user = userRepository.findById(userId)
-                .orElseThrow(() -> new NoSuchElementException("User not found"));
         RecipeEntity recipe = recipeRepository.findById(recipeId)
                 .orElseThrow(() -> new NoSuchElementException("Recipe not found"));
-        user.getFavoriteRecipes().add(recipe);
-        userRepository.save(user);
-        return RecipeDto.fromEntity(recipe);
+        RecipeDto dto = RecipeDto.fromEntity(recipe);
+        int added;
+        try {
+            added = recipeRepository.addFavorite(userId, recipeId);
+        } catch (DataIntegrityViolationException e) {
+            if (SqlErrors.isForeignKeyViolation(e, "user_id")) {
+                // The user was deleted after the token was issued
+                throw new NoSuchElementException(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(userId));
+            }
+            throw e;
+        }
+        if (added > 0) {
+            recipePopularityIndex.favoriteAdded(recipeId);
+        }
+        return dto;
     }
 
     public void removeRecipeFromFavorites(Long userId, Long recipeId) {
-        UserEntity user = userRepository.findById(userId)
-                .orElseThrow(() -> new NoSuchElementException("User not found"));
-        RecipeEntity recipe = recipeRepository.findById(recipeId)
-                .orElseThrow(() -> new NoSuchElementException("Recipe not found"));
-        user.getFavoriteRecipes().remove(recipe);
-        userRepository.save(user);
+        if (recipeRepository.removeFavorite(userId, recipeId) > 0) {
+            recipePopularityIndex.favoriteRemoved(recipeId);
+        }
     }
 
-    public List<RecipeDto> getUserFavorites(Long userId) {
-        UserEntity user = userRepository.findById(userId)
-                .orElseThrow(() -> new NoSuchElementException("User not found"));
-        return user.getFavoriteRecipes().stream().map(RecipeDto::fromEntity).toList();
+    /**
+     * @return the ids among {@code recipeIds} that the user has favorited
+     */
+    public List<Long> getFavoriteIds(Long userId, Collection<Long> recipeIds) {
+        if (recipeIds.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Можно проверить не больше " + MAX_PAGE_SIZE + " рецептов за раз");
+        }
+        if (recipeIds.isEmpty()) {
+            return List.of();
+        }
+        return recipeRepository.findFavoriteIdsIn(userId, recipeIds);
+    }
+
+    public FavoriteRecipePageResponse getUserFavorites(Long userId, Long afterId, int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE || (afterId != null && afterId < 0)) {
+            throw new IllegalArgumentException("Некорректные параметры пагинации: afterId=" + afterId + ", size=" + size);
+        }
+        List<RecipeSummaryDto> items = recipeRepository.findFavoritesAfter(userId,
+                afterId == null ? 0 : afterId, Limit.of(size));
+        Long nextAfterId = items.size() == size ? items.getLast().getId() : null;
+        return new FavoriteRecipePageResponse(items, nextAfterId);
     }
 }
@@ -56,12 +56,13 @@ public class UserService implements UserDetailsService {
         );
     }
 
-    public void createNewUser(UserDto userDTO) {
+    public UserDetailsDto createNewUser(UserDto userDTO) {
         UserDto userWithPasswordDTO = new UserDto(userDTO.email(),
                 passwordEncoder.encode(userDTO.password()),
                 userDTO.fullName());
         UserEntity userEntity = UserDTOToUserEntity(userWithPasswordDTO);
-        userRepository.save(userEntity);
+        UserEntity saved = userRepository.save(userEntity);
+        return new UserDetailsDto(saved.getId(), saved.getEmail());
     }
 
 }
\ No newline at end of file
@@ -2,44 +2,33 @@ package com.recipemaster.recipeservice.service;
 
 import com.recipemaster.dto.UserProductInfoDto;
 import com.recipemaster.entities.ProductEntity;
-import com.recipemaster.entities.UserEntity;
 import com.recipemaster.entities.UsersProductEntity;
 import com.recipemaster.enums.ErrorMessage;
-import com.recipemaster.recipeservice.repository.UserRepository;
 import com.recipemaster.recipeservice.repository.UsersProductRepository;
+import com.recipemaster.recipeservice.utils.Quantities;
+import com.recipemaster.recipeservice.utils.SqlErrors;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.NoSuchElementException;
 
-import static com.recipemaster.recipeservice.mapper.UsersProductMapper.toUsersProductEntity;
-
 @Service
 @RequiredArgsConstructor
 public class UsersProductService {
     private final UsersProductRepository usersProductRepository;
-    private final UserRepository userRepository;
     private final ProductElasticService productElasticService;
+    private final RecipeSearchCache recipeSearchCache;
 
     public List<UserProductInfoDto> getUserProductsByUserId(Long userId) {
-        List<UsersProductEntity> usersProducts = usersProductRepository.findAllByUserId(userId);
-
-        return usersProducts.stream()
-                .map(up -> new UserProductInfoDto(
-                        up.getProduct().getId(),
-                        up.getProduct().getName(),
-                        up.getQuantity(),
-                        up.getProduct().getUnit()
-                ))
-                .toList();
+        return usersProductRepository.findProductInfoByUserId(userId);
     }
 
     public UserProductInfoDto addProduct(Long userId, UserProductInfoDto productInputDto) {
+        validateQuantity(productInputDto.getQuantity());
         productInputDto.setName(productInputDto.getName().toLowerCase());
-        UserEntity user = userRepository.findById(userId).orElseThrow(
-                () -> new NoSuchElementException(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage()));
-
         ProductEntity product = productElasticService.findOrCreate(
                 productInputDto.getName(),
                 productInputDto.getUnit()
@@ -49,29 +38,38 @@ public class UsersProductService {
             throw new IllegalArgumentException(ErrorMessage.INCORRECT_PRODUCT_UNIT.getMessage() + product.getUnit());
         }
 
-        UsersProductEntity usersProduct = usersProductRepository.findProductById(userId, product.getId())
-                .map(existingProduct -> {
-                    existingProduct.setQuantity(existingProduct.getQuantity().add(productInputDto.getQuantity()));
-                    return existingProduct;
-                })
-                .orElseGet(() -> toUsersProductEntity(user, product, productInputDto));
-
-        UsersProductEntity savedProduct = usersProductRepository.save(usersProduct);
+        BigDecimal quantity;
+        try {
+            quantity = usersProductRepository.addQuantity(userId, product.getId(), productInputDto.getQuantity());
+        } catch (DataIntegrityViolationException e) {
+            if (SqlErrors.isForeignKeyViolation(e, "user_id")) {
+                // The user was deleted after the token was issued
+                throw new NoSuchElementException(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(userId));
+            }
+            if (SqlErrors.isNumericOutOfRange(e)) {
+                // The sum with the stored quantity does not fit the column
+                throw new IllegalArgumentException(ErrorMessage.INCORRECT_PRODUCT_QUANTITY.getMessage());
+            }
+            throw e;
+        }
+        recipeSearchCache.invalidateUser(userId);
 
         return new UserProductInfoDto(
-                savedProduct.getProduct().getId(),
-                savedProduct.getProduct().getName(),
-                savedProduct.getQuantity(),
-                savedProduct.getProduct().getUnit()
+                product.getId(),
+                product.getName(),
+                quantity,
+                product.getUnit()
         );
     }
 
     public UserProductInfoDto updateProduct(Long userId, Long productId, UserProductInfoDto productInputDto) {
+        validateQuantity(productInputDto.getQuantity());
         UsersProductEntity usersProduct = usersProductRepository.findProductById(userId, productId)
                 .orElseThrow(() -> new NoSuchElementException(ErrorMessage.USERS_PRODUCT_NOT_FOUND_BY_ID.getMessage()));
         usersProduct.setQuantity(productInputDto.getQuantity());
 
         usersProductRepository.save(usersProduct);
+        recipeSearchCache.invalidateUser(userId);
 
         return new UserProductInfoDto(
                 usersProduct.getProduct().getId(),
@@ -83,5 +81,12 @@ public class UsersProductService {
 
     public void deleteProduct(Long userId, Long productId) {
         usersProductRepository.deleteByUserAndProductId(userId, productId);
+        recipeSearchCache.invalidateUser(userId);
+    }
+
+    private static void validateQuantity(BigDecimal quantity) {
+        if (!Quantities.isValid(quantity)) {
+            throw new IllegalArgumentException(ErrorMessage.INCORRECT_PRODUCT_QUANTITY.getMessage());
+        }
     }
 }
@@ -0,0 +1,8 @@
+package com.recipemaster.recipeservice.utils;
+
+/**
+ * Principal that {@link JwtRequestFilter} puts into the security context; controllers receive it
+ * through {@code @AuthenticationPrincipal} without parsing the token or loading the user again.
+ */
+public record AuthenticatedUser(Long id, String email) {
+}
@@ -1,6 +1,7 @@
 package com.recipemaster.recipeservice.utils;
 
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -29,14 +30,14 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     protected void doFilterInternal(@NotNull HttpServletRequest request, @NotNull HttpServletResponse response, @NotNull FilterChain filterChain) throws ServletException, IOException {
 
         String authHeader = request.getHeader("Authorization");
-        String username = null;
+        AuthenticatedUser user = null;
         String jwtToken;
 
         if (authHeader != null && authHeader.startsWith(BEARER_PREFIX)) {
             jwtToken = authHeader.substring(BEARER_PREFIX.length());
             try {
                 if (!jwtToken.isEmpty()) {
-                    username = jwtTokenUtils.getUsername(jwtToken);
+                    user = jwtTokenUtils.getAuthenticatedUser(jwtToken);
                 } else {
                     log.warn("JWT token is empty or invalid.");
                 }
@@ -44,6 +45,8 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                 log.info("JWT token has expired: {}", jwtToken);
             } catch (MalformedJwtException e) {
                 log.info("JWT token is malformed: {}", jwtToken);
+            } catch (JwtException e) {
+                log.info("JWT token is rejected: {}", e.getMessage());
             } catch (Exception e) {
                 log.error("An error occurred while processing JWT token", e);
             }
@@ -51,8 +54,8 @@ public class JwtRequestFilter extends OncePerRequestFilter {
             log.warn("Authorization header is missing or does not start with 'Bearer '.");
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(username,
+        if (user != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(user,
                     null, Collections.emptyList());
 
             SecurityContextHolder.getContext().setAuthentication(authentication);
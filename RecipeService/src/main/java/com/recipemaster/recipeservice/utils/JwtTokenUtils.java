@@ -1,64 +1,128 @@
 package com.recipemaster.recipeservice.utils;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Issues and verifies tokens. The signing key and parser are built once and shared by all threads.
+ * Verified tokens are cached by signature until their {@code exp}, so repeated requests with the same
+ * token skip the HMAC check and claims parsing.
+ */
 @Slf4j
 @Component
 public class JwtTokenUtils {
+    public static final String CACHE_NAME = "jwtVerified";
+    private static final String USER_ID_CLAIM = "userId";
 
-    @Value("${jwt.secret}")
-    private String secret;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final Duration lifetime;
+    private final Cache<String, VerifiedToken> verified;
+    private final Timer hitTimer;
+    private final Timer verifiedTimer;
+    private final Timer rejectedTimer;
 
-    @Value("${jwt.lifetime}")
-    private Duration lifetime;
-
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    public JwtTokenUtils(@Value("${jwt.secret}") String secret,
+                         @Value("${jwt.lifetime}") Duration lifetime,
+                         @Value("${jwt.cache.maximum-size:10000}") long cacheSize,
+                         MeterRegistry meterRegistry) {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.lifetime = lifetime;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(Expiry.creating((String signature, VerifiedToken token) ->
+                        Duration.between(Instant.now(), token.expiresAt())))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, CACHE_NAME);
+        this.hitTimer = verificationTimer(meterRegistry, "hit");
+        this.verifiedTimer = verificationTimer(meterRegistry, "verified");
+        this.rejectedTimer = verificationTimer(meterRegistry, "rejected");
     }
 
-    public String generateToken(UserDetails userDetails) {
+    public String generateToken(AuthenticatedUser user) {
         if (lifetime == null) {
             throw new IllegalStateException("JWT lifetime is not configured");
         }
 
         Map<String, Object> claims = new HashMap<>();
-        claims.put("username", userDetails.getUsername());
+        claims.put("username", user.email());
+        claims.put(USER_ID_CLAIM, user.id());
 
         Date issuedAt = new Date();
         Date expiredAt = new Date(issuedAt.getTime() + lifetime.toMillis());
 
         String token = Jwts.builder()
                 .setClaims(claims)
-                .setSubject(userDetails.getUsername())
+                .setSubject(user.email())
                 .setIssuedAt(issuedAt)
                 .setExpiration(expiredAt)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
-        log.info("Generated token for user: {}", userDetails.getUsername());
+        log.info("Generated token for user: {}", user.email());
         return token;
     }
 
-    public String getUsername(String token) {
-        return getClaimsFromToken(token).getSubject();
+    /**
+     * @throws JwtException when the token is invalid, expired or was issued without a user id
+     */
+    public AuthenticatedUser getAuthenticatedUser(String token) {
+        long start = System.nanoTime();
+        String signature = token.substring(token.lastIndexOf('.') + 1);
+        VerifiedToken cached = verified.getIfPresent(signature);
+        // The whole token is compared so a cached signature cannot vouch for a different header or payload
+        if (cached != null && cached.token().equals(token)) {
+            hitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return cached.user();
+        }
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Long userId = claims.get(USER_ID_CLAIM, Long.class);
+            if (userId == null) {
+                throw new JwtException("Token has no " + USER_ID_CLAIM + " claim");
+            }
+            AuthenticatedUser user = new AuthenticatedUser(userId, claims.getSubject());
+            if (claims.getExpiration() != null) {
+                verified.put(signature, new VerifiedToken(token, user, claims.getExpiration().toInstant()));
+            }
+            verifiedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return user;
+        } catch (RuntimeException e) {
+            rejectedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private static Timer verificationTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("jwt.verification")
+                .tag("result", result)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
     }
 
-    private Claims getClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private record VerifiedToken(String token, AuthenticatedUser user, Instant expiresAt) {
     }
-}
\ No newline at end of file
+}
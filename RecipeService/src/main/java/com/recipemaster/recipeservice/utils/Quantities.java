@@ -0,0 +1,29 @@
+package com.recipemaster.recipeservice.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Range of the NUMERIC(10, 3) quantity columns of ingredient and users_product.
+ */
+public final class Quantities {
+    public static final int SCALE = 3;
+    public static final BigDecimal MAX = new BigDecimal("9999999.999");
+
+    private Quantities() {
+    }
+
+    /**
+     * @return whether the value is a non-negative quantity the column can store
+     */
+    public static boolean isValid(BigDecimal quantity) {
+        return quantity != null && quantity.signum() >= 0 && fitsColumn(quantity);
+    }
+
+    /**
+     * @return whether PostgreSQL stores the value without a numeric overflow once it is rounded to the column scale
+     */
+    public static boolean fitsColumn(BigDecimal quantity) {
+        return quantity.setScale(SCALE, RoundingMode.HALF_UP).abs().compareTo(MAX) <= 0;
+    }
+}
@@ -2,7 +2,7 @@ package com.recipemaster.recipeservice.utils;
 
 import com.recipemaster.dto.IngredientDto;
 import com.recipemaster.dto.RecipeInputDto;
-import com.recipemaster.recipeservice.service.RecipeService;
+import com.recipemaster.recipeservice.service.RecipeBulkImportService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
@@ -16,7 +16,7 @@ import java.util.stream.IntStream;
 @RequiredArgsConstructor
 public class RecipeGenerator {
 
-    private final RecipeService recipeService;
+    private final RecipeBulkImportService recipeBulkImportService;
     private final Random rnd = new Random();
 
     private static final List<String> SAMPLE_PRODUCTS = List.of(
@@ -34,9 +34,8 @@ public class RecipeGenerator {
     );
 
     public void generateAndAdd(int count) {
-        IntStream.range(0, count)
-                .mapToObj(i -> createRandomRecipeInput())
-                .forEach(recipeService::addRecipe);
+        recipeBulkImportService.importRecipes(IntStream.range(0, count)
+                .mapToObj(i -> createRandomRecipeInput()));
     }
 
     private RecipeInputDto createRandomRecipeInput() {
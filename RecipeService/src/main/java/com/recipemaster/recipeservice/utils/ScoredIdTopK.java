@@ -0,0 +1,108 @@
+package com.recipemaster.recipeservice.utils;
+
+import java.util.List;
+
+/**
+ * Keeps the {@code capacity} best {@code (id, score)} pairs seen so far in a binary min-heap over
+ * parallel arrays, without boxing. Higher scores rank first, ties go to the smaller id.
+ * {@link #offer(long, double)} never allocates.
+ */
+public final class ScoredIdTopK {
+    private final long[] ids;
+    private final double[] scores;
+    private int size;
+
+    public ScoredIdTopK(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.ids = new long[capacity];
+        this.scores = new double[capacity];
+    }
+
+    public void offer(long id, double score) {
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (ranksBefore(id, score, ids[0], scores[0])) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    public void addAll(ScoredIdTopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ids[i], other.scores[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Drains the heap into a best-first list. The heap is empty afterwards.
+     */
+    public List<Scored> drainSorted() {
+        Scored[] sorted = new Scored[size];
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[i] = new Scored(ids[0], scores[0]);
+            size--;
+            if (size > 0) {
+                ids[0] = ids[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+        }
+        return List.of(sorted);
+    }
+
+    private static boolean ranksBefore(long id, double score, long otherId, double otherScore) {
+        int byScore = Double.compare(score, otherScore);
+        return byScore > 0 || (byScore == 0 && id < otherId);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksBefore(ids[parent], scores[parent], ids[index], scores[index])) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && ranksBefore(ids[worst], scores[worst], ids[left], scores[left])) {
+                worst = left;
+            }
+            if (right < size && ranksBefore(ids[worst], scores[worst], ids[right], scores[right])) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    public record Scored(long id, double score) {
+    }
+}
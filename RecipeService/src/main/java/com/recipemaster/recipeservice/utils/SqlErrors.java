@@ -0,0 +1,51 @@
+package com.recipemaster.recipeservice.utils;
+
+import java.sql.SQLException;
+
+/**
+ * Tells PostgreSQL errors apart by the SQLState of the driver exception behind a Spring or Hibernate one.
+ */
+public final class SqlErrors {
+    public static final String NUMERIC_VALUE_OUT_OF_RANGE = "22003";
+    public static final String FOREIGN_KEY_VIOLATION = "23503";
+
+    private SqlErrors() {
+    }
+
+    /**
+     * @return the SQLState of the innermost {@link SQLException} in the cause chain, or null if there is none
+     */
+    public static String sqlState(Throwable e) {
+        SQLException cause = sqlException(e);
+        return cause != null ? cause.getSQLState() : null;
+    }
+
+    /**
+     * PostgreSQL names the offending column in the error detail as {@code Key (column)=(value)}.
+     */
+    public static boolean isForeignKeyViolation(Throwable e, String column) {
+        SQLException cause = sqlException(e);
+        return cause != null
+                && FOREIGN_KEY_VIOLATION.equals(cause.getSQLState())
+                && cause.getMessage() != null
+                && cause.getMessage().contains("(" + column + ")");
+    }
+
+    public static boolean isNumericOutOfRange(Throwable e) {
+        return NUMERIC_VALUE_OUT_OF_RANGE.equals(sqlState(e));
+    }
+
+    private static SQLException sqlException(Throwable e) {
+        SQLException found = null;
+        for (Throwable cause = e; cause != null && cause != cause.getCause(); cause = cause.getCause()) {
+            if (cause instanceof SQLException sql) {
+                found = sql;
+            }
+        }
+        // A failed batch carries the error of the statement as its next exception
+        if (found != null && found.getNextException() != null) {
+            return found.getNextException();
+        }
+        return found;
+    }
+}
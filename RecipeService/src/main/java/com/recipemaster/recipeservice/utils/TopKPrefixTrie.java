@@ -0,0 +1,164 @@
+package com.recipemaster.recipeservice.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Path-compressed trie in which every node keeps the best {@code k} values of its subtree.
+ * A prefix lookup walks down the prefix and copies at most {@code k} values, independent of how many keys match.
+ * Values are ranked by {@code ranking} (best first) and deduplicated by {@code identity}, so one value can be
+ * stored under several keys. Not thread-safe.
+ */
+public final class TopKPrefixTrie<T> {
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final int k;
+    private final Comparator<? super T> ranking;
+    private final Function<? super T, ?> identity;
+    private final Node root = new Node("");
+    private int nodeCount = 1;
+
+    public TopKPrefixTrie(int k, Comparator<? super T> ranking, Function<? super T, ?> identity) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.k = k;
+        this.ranking = ranking;
+        this.identity = identity;
+    }
+
+    public void put(String key, T value) {
+        Node node = root;
+        offer(node, value);
+        int i = 0;
+        while (i < key.length()) {
+            int slot = node.indexOf(key.charAt(i));
+            if (slot < 0) {
+                Node leaf = new Node(key.substring(i));
+                offer(leaf, value);
+                node.insertChild(-slot - 1, leaf);
+                nodeCount++;
+                return;
+            }
+            Node child = node.children[slot];
+            int common = commonPrefixLength(child.label, key, i);
+            if (common < child.label.length()) {
+                child = split(node, slot, common);
+            }
+            offer(child, value);
+            node = child;
+            i += common;
+        }
+    }
+
+    /**
+     * @return up to {@code limit} best values stored under keys starting with {@code prefix}, best first
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> get(String prefix, int limit) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int slot = node.indexOf(prefix.charAt(i));
+            if (slot < 0) {
+                return List.of();
+            }
+            Node child = node.children[slot];
+            int length = Math.min(child.label.length(), prefix.length() - i);
+            if (!child.label.regionMatches(0, prefix, i, length)) {
+                return List.of();
+            }
+            node = child;
+            i += length;
+        }
+        return (List<T>) List.of(Arrays.copyOf(node.top, Math.min(limit, node.topSize)));
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Cuts the edge to {@code parent.children[slot]} after {@code length} chars and returns the new middle node.
+     */
+    private Node split(Node parent, int slot, int length) {
+        Node child = parent.children[slot];
+        Node middle = new Node(child.label.substring(0, length));
+        middle.top = child.top.clone();
+        middle.topSize = child.topSize;
+        child.label = child.label.substring(length);
+        middle.keys = new char[]{child.label.charAt(0)};
+        middle.children = new Node[]{child};
+        parent.children[slot] = middle;
+        nodeCount++;
+        return middle;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void offer(Node node, T value) {
+        Object id = identity.apply(value);
+        for (int i = 0; i < node.topSize; i++) {
+            if (Objects.equals(identity.apply((T) node.top[i]), id)) {
+                System.arraycopy(node.top, i + 1, node.top, i, node.topSize - i - 1);
+                node.top[--node.topSize] = null;
+                break;
+            }
+        }
+        int position = node.topSize;
+        while (position > 0 && ranking.compare(value, (T) node.top[position - 1]) < 0) {
+            position--;
+        }
+        if (position >= k) {
+            return;
+        }
+        if (node.top.length < k && node.topSize == node.top.length) {
+            node.top = Arrays.copyOf(node.top, Math.min(k, Math.max(1, node.top.length * 2)));
+        }
+        int shifted = Math.min(node.topSize, k - 1) - position;
+        System.arraycopy(node.top, position, node.top, position + 1, shifted);
+        node.top[position] = value;
+        node.topSize = Math.min(node.topSize + 1, k);
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Node {
+        private String label;
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private Object[] top = new Object[1];
+        private int topSize;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private int indexOf(char c) {
+            return Arrays.binarySearch(keys, c);
+        }
+
+        private void insertChild(int slot, Node child) {
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, slot);
+            System.arraycopy(children, 0, newChildren, 0, slot);
+            newKeys[slot] = child.label.charAt(0);
+            newChildren[slot] = child;
+            System.arraycopy(keys, slot, newKeys, slot + 1, keys.length - slot);
+            System.arraycopy(children, slot, newChildren, slot + 1, children.length - slot);
+            keys = newKeys;
+            children = newChildren;
+        }
+    }
+}
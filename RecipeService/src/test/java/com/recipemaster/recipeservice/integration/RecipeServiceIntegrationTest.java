@@ -3,6 +3,8 @@ package com.recipemaster.recipeservice.integration;
 import com.recipemaster.dto.IngredientDto;
 import com.recipemaster.dto.RecipeDto;
 import com.recipemaster.dto.RecipeInputDto;
+import com.recipemaster.dto.responses.FavoriteRecipePageResponse;
+import com.recipemaster.dto.responses.RecipePageResponse;
 import com.recipemaster.entities.IngredientEntity;
 import com.recipemaster.entities.ProductEntity;
 import com.recipemaster.entities.RecipeEntity;
@@ -12,6 +14,7 @@ import com.recipemaster.recipeservice.repository.ProductRepository;
 import com.recipemaster.recipeservice.repository.RecipeRepository;
 import com.recipemaster.recipeservice.repository.UserRepository;
 import com.recipemaster.recipeservice.repository.UsersProductRepository;
+import com.recipemaster.recipeservice.service.RecipeProductIndex;
 import com.recipemaster.recipeservice.service.RecipeService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -26,9 +29,11 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
@@ -63,6 +68,9 @@ class RecipeServiceIntegrationTest {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private RecipeProductIndex recipeProductIndex;
+
     private UserEntity testUser;
     private ProductEntity testProduct;
     private RecipeEntity testRecipe;
@@ -95,24 +103,29 @@ class RecipeServiceIntegrationTest {
         testRecipe.setIngredients(List.of(ingredient));
 
         testRecipe = recipeRepository.save(testRecipe);
+        recipeProductIndex.rebuild();
     }
 
     @Test
-    void testReturnOfAllRecipesGivingNoCategory() {
+    void testReturnOfRecipesPageGivingNoCategory() {
 
-        List<RecipeDto> result = recipeService.getAllRecipes(null);
+        RecipePageResponse page = recipeService.getRecipesPage(null, null, 10);
 
-        assertEquals(1, result.size());
-        assertEquals("Test Recipe", result.getFirst().getTitle());
+        assertEquals(1, page.items().size());
+        assertEquals("Test Recipe", page.items().getFirst().getTitle());
+        assertEquals(1, page.items().getFirst().getIngredients().size());
+        assertNull(page.nextAfterId());
     }
 
     @Test
-    void testReturnOfAllRecipesWithCategory() {
+    void testStreamOfRecipesWithCategory() {
 
-        List<RecipeDto> result = recipeService.getAllRecipes("Test Category");
+        List<RecipeDto> result = new ArrayList<>();
+        recipeService.streamRecipes("Test Category", result::add);
 
         assertEquals(1, result.size());
         assertEquals("Test Recipe", result.getFirst().getTitle());
+        assertEquals(1, result.getFirst().getIngredients().size());
     }
 
     @Test
@@ -183,18 +196,28 @@ class RecipeServiceIntegrationTest {
     void testReturnOfUserFavorites() {
 
         recipeService.addRecipeToFavorites(testUser.getId(), testRecipe.getId());
-        List<RecipeDto> result = recipeService.getUserFavorites(testUser.getId());
+        FavoriteRecipePageResponse result = recipeService.getUserFavorites(testUser.getId(), null, 50);
 
-        assertEquals(1, result.size());
-        assertEquals("Test Recipe", result.getFirst().getTitle());
+        assertEquals(1, result.items().size());
+        assertEquals("Test Recipe", result.items().getFirst().getTitle());
+        assertNull(result.nextAfterId());
+    }
+
+    @Test
+    void testReturnOfFavoriteIdsAmongGivenRecipes() {
+
+        recipeService.addRecipeToFavorites(testUser.getId(), testRecipe.getId());
+        List<Long> result = recipeService.getFavoriteIds(testUser.getId(), List.of(testRecipe.getId(), -1L));
+
+        assertEquals(List.of(testRecipe.getId()), result);
     }
 
     @Test
     void testReturnOfUserFavoritesWithoutMatchingRecipes() {
 
-        List<RecipeDto> result = recipeService.getUserFavorites(testUser.getId());
+        FavoriteRecipePageResponse result = recipeService.getUserFavorites(testUser.getId(), null, 50);
 
-        assertTrue(result.isEmpty());
+        assertTrue(result.items().isEmpty());
     }
 }
 
@@ -0,0 +1,97 @@
+package com.recipemaster.recipeservice.unit;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.MsearchRequest;
+import co.elastic.clients.elasticsearch.core.MsearchResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import co.elastic.clients.elasticsearch.core.msearch.MultiSearchResponseItem;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.recipemaster.ProductElasticDocument;
+import com.recipemaster.recipeservice.service.ElasticProductSearchBackend;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static com.recipemaster.recipeservice.unit.ProductFixtures.product;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ElasticProductSearchBackendUnitTest {
+
+    @Mock
+    private ElasticsearchClient elasticsearchClient;
+
+    @InjectMocks
+    private ElasticProductSearchBackend elasticProductSearchBackend;
+
+    @Test
+    void testIndexReportsOnlyTheRejectedProducts() throws Exception {
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenReturn(BulkResponse.of(b -> b
+                .errors(true)
+                .took(1)
+                .items(List.of(
+                        item("7", null),
+                        item("8", "failed to parse field [name]")
+                ))));
+
+        Map<Long, String> failures = elasticProductSearchBackend.index(
+                List.of(product(7L, "Молоко", "мл"), product(8L, "Мука", "г")));
+
+        assertEquals(Map.of(8L, "failed to parse field [name]"), failures);
+    }
+
+    @Test
+    void testNamesAreSearchedInBatchesOfTwoHundred() throws Exception {
+        List<String> names = IntStream.range(0, 450).mapToObj(i -> "продукт " + i).toList();
+        List<Integer> batchSizes = new ArrayList<>();
+        when(elasticsearchClient.msearch(any(MsearchRequest.class), eq(ProductElasticDocument.class)))
+                .thenAnswer(invocation -> {
+                    int size = invocation.<MsearchRequest>getArgument(0).searches().size();
+                    batchSizes.add(size);
+                    return MsearchResponse.<ProductElasticDocument>of(r -> r
+                            .took(1)
+                            .responses(Collections.nCopies(size, found("продукт"))));
+                });
+
+        Map<String, String> matched = elasticProductSearchBackend.findMatchingNames(names);
+
+        assertEquals(List.of(200, 200, 50), batchSizes);
+        assertEquals(450, matched.size());
+        assertEquals("продукт", matched.get("продукт 449"));
+    }
+
+    private static MultiSearchResponseItem<ProductElasticDocument> found(String name) {
+        ProductElasticDocument doc = new ProductElasticDocument();
+        doc.setId("1");
+        doc.setName(name);
+        return MultiSearchResponseItem.of(i -> i.result(r -> r
+                .took(1)
+                .timedOut(false)
+                .shards(s -> s.total(1).successful(1).failed(0))
+                .hits(h -> h.hits(List.of(Hit.of(hit -> hit.index("products").id("1").source(doc)))))));
+    }
+
+    private static BulkResponseItem item(String id, String error) {
+        return BulkResponseItem.of(i -> {
+            i.operationType(OperationType.Index).index("products").id(id).status(error == null ? 201 : 400);
+            if (error != null) {
+                i.error(e -> e.type("document_parsing_exception").reason(error));
+            }
+            return i;
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package com.recipemaster.recipeservice.unit;
+
+import com.recipemaster.recipeservice.utils.AuthenticatedUser;
+import com.recipemaster.recipeservice.utils.JwtTokenUtils;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtTokenUtilsUnitTest {
+    private static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private SimpleMeterRegistry meterRegistry;
+    private JwtTokenUtils jwtTokenUtils;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtTokenUtils = new JwtTokenUtils(SECRET, Duration.ofMinutes(30), 100, meterRegistry);
+    }
+
+    @Test
+    void testTokenCarriesUserIdAndEmail() {
+        String token = jwtTokenUtils.generateToken(new AuthenticatedUser(42L, "user@example.com"));
+
+        AuthenticatedUser user = jwtTokenUtils.getAuthenticatedUser(token);
+
+        assertEquals(new AuthenticatedUser(42L, "user@example.com"), user);
+    }
+
+    @Test
+    void testVerifiedTokenIsServedFromCache() {
+        String token = jwtTokenUtils.generateToken(new AuthenticatedUser(42L, "user@example.com"));
+
+        jwtTokenUtils.getAuthenticatedUser(token);
+        AuthenticatedUser user = jwtTokenUtils.getAuthenticatedUser(token);
+
+        assertEquals(42L, user.id());
+        assertEquals(1, verifications("verified"));
+        assertEquals(1, verifications("hit"));
+    }
+
+    @Test
+    void testCachedSignatureDoesNotVouchForAnotherPayload() {
+        String token = jwtTokenUtils.generateToken(new AuthenticatedUser(42L, "user@example.com"));
+        String other = jwtTokenUtils.generateToken(new AuthenticatedUser(7L, "other@example.com"));
+        jwtTokenUtils.getAuthenticatedUser(token);
+
+        String forged = other.substring(0, other.lastIndexOf('.')) + token.substring(token.lastIndexOf('.'));
+
+        assertThrows(JwtException.class, () -> jwtTokenUtils.getAuthenticatedUser(forged));
+        assertEquals(1, verifications("rejected"));
+    }
+
+    @Test
+    void testExpiredTokenIsRejected() {
+        String token = Jwts.builder()
+                .claim("userId", 42L)
+                .setSubject("user@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .compact();
+
+        assertThrows(JwtException.class, () -> jwtTokenUtils.getAuthenticatedUser(token));
+    }
+
+    @Test
+    void testTokenWithoutUserIdIsRejected() {
+        String token = Jwts.builder()
+                .setSubject("user@example.com")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .compact();
+
+        assertThrows(JwtException.class, () -> jwtTokenUtils.getAuthenticatedUser(token));
+    }
+
+    private long verifications(String result) {
+        return meterRegistry.get("jwt.verification").tag("result", result).timer().count();
+    }
+}
@@ -0,0 +1,80 @@
+package com.recipemaster.recipeservice.unit;
+
+import com.recipemaster.recipeservice.repository.ProductRepository;
+import com.recipemaster.recipeservice.service.LuceneProductSearchBackend;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.recipemaster.recipeservice.unit.ProductFixtures.product;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LuceneProductSearchBackendUnitTest {
+
+    private static ProductRepository productRepository;
+    private static LuceneProductSearchBackend backend;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        productRepository = mock(ProductRepository.class);
+        when(productRepository.findAll()).thenReturn(List.of(
+                product(1L, "помидор"),
+                product(2L, "огурец"),
+                product(3L, "сливочное масло"),
+                product(4L, "молоко")
+        ));
+        backend = new LuceneProductSearchBackend(ProductElasticServiceUnitTest.lookupProperties(), productRepository);
+        backend.rebuild();
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        backend.close();
+    }
+
+    @Test
+    void testMatchesInflectedFormsAndSynonyms() {
+        Map<String, String> matched = backend.findMatchingNames(List.of("помидоры", "томат", "корнишон", "молока"));
+
+        assertEquals(Map.of(
+                "помидоры", "помидор",
+                "томат", "помидор",
+                "корнишон", "огурец",
+                "молока", "молоко"
+        ), matched);
+    }
+
+    @Test
+    void testUnknownNameHasNoMatch() {
+        assertTrue(backend.findMatchingNames(List.of("куркума")).isEmpty());
+    }
+
+    @Test
+    void testIndexedProductIsSearchableImmediately() {
+        backend.index(List.of(product(5L, "бекон")));
+
+        assertEquals(Map.of("бекон", "бекон"), backend.findMatchingNames(List.of("бекон")));
+    }
+
+    @Test
+    void testCatchUpRereadsIdsCommittedOutOfOrder() {
+        when(productRepository.findAllByIdGreaterThanOrIdIn(4L, Set.of())).thenReturn(List.of(product(7L, "кефир")));
+        when(productRepository.findAllByIdGreaterThanOrIdIn(7L, Set.of(5L, 6L))).thenReturn(List.of(product(6L, "творог")));
+
+        backend.catchUp();
+        backend.catchUp();
+        backend.catchUp();
+
+        assertEquals(Map.of("кефир", "кефир", "творог", "творог"),
+                backend.findMatchingNames(List.of("кефир", "творог")));
+        verify(productRepository).findAllByIdGreaterThanOrIdIn(7L, Set.of(5L));
+    }
+}
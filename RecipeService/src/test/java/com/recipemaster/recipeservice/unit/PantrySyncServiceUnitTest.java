@@ -0,0 +1,210 @@
+package com.recipemaster.recipeservice.unit;
+
+import com.recipemaster.dto.requests.PantrySyncRequest.Operation;
+import com.recipemaster.dto.requests.PantrySyncRequest.Type;
+import com.recipemaster.dto.responses.PantrySyncResponse;
+import com.recipemaster.entities.ProductEntity;
+import com.recipemaster.enums.ErrorMessage;
+import com.recipemaster.recipeservice.repository.ProductRepository;
+import com.recipemaster.recipeservice.service.PantrySyncService;
+import com.recipemaster.recipeservice.service.ProductElasticService;
+import com.recipemaster.recipeservice.service.RecipeSearchCache;
+import com.recipemaster.recipeservice.utils.SqlErrors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static com.recipemaster.recipeservice.unit.ProductFixtures.product;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PantrySyncServiceUnitTest {
+
+    @Mock
+    private ProductElasticService productElasticService;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private RecipeSearchCache recipeSearchCache;
+
+    @InjectMocks
+    private PantrySyncService pantrySyncService;
+
+    @Test
+    void testOperationsAreResolvedInBulkAndAppliedInOneTransaction() {
+        ProductEntity milk = product(1L, "молоко", "мл");
+        ProductEntity salt = product(2L, "соль", "г");
+        ProductEntity sugar = product(3L, "сахар", "г");
+        when(productElasticService.findOrCreateAll(List.of(
+                new ProductElasticService.ProductKey("молоко", "мл"),
+                new ProductElasticService.ProductKey("молоко", "мл")
+        ))).thenReturn(Map.of("молоко", milk));
+        when(productRepository.findAllById(Set.of(2L, 3L))).thenReturn(List.of(salt, sugar));
+        stubTransaction();
+        when(jdbcTemplate.query(contains("users_product.quantity + EXCLUDED.quantity"),
+                any(PreparedStatementSetter.class), rowMapper()))
+                .thenReturn(List.of(Map.entry(1L, new BigDecimal("750"))));
+        when(jdbcTemplate.query(contains("UPDATE users_product"),
+                any(PreparedStatementSetter.class), rowMapper()))
+                .thenReturn(List.of(Map.entry(2L, new BigDecimal("100"))));
+
+        PantrySyncResponse response = pantrySyncService.sync(7L, List.of(
+                new Operation(Type.ADD, null, "Молоко", new BigDecimal("500"), "мл"),
+                new Operation(Type.UPDATE, 2L, null, new BigDecimal("100"), null),
+                new Operation(Type.ADD, null, "молоко", new BigDecimal("250"), "мл"),
+                new Operation(Type.DELETE, 3L, null, null, null)
+        ));
+
+        assertEquals(4, response.applied());
+        assertEquals(0, response.failed());
+        assertEquals(new BigDecimal("750"), response.results().get(0).product().getQuantity());
+        assertEquals(new BigDecimal("100"), response.results().get(1).product().getQuantity());
+        assertEquals(new BigDecimal("750"), response.results().get(2).product().getQuantity());
+        assertTrue(response.results().get(3).success());
+        assertNull(response.results().get(3).product());
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(jdbcTemplate, times(2)).query(anyString(), any(PreparedStatementSetter.class), rowMapper());
+        verify(jdbcTemplate).update(contains("DELETE"), any(PreparedStatementSetter.class));
+        verify(recipeSearchCache).invalidateUser(7L);
+    }
+
+    @Test
+    void testInvalidOperationsAreReportedAndSkipped() {
+        when(productElasticService.findOrCreateAll(List.of(new ProductElasticService.ProductKey("молоко", "г"))))
+                .thenReturn(Map.of("молоко", product(1L, "молоко", "мл")));
+        when(productRepository.findAllById(Set.of(99L))).thenReturn(List.of());
+
+        PantrySyncResponse response = pantrySyncService.sync(7L, List.of(
+                new Operation(Type.ADD, null, "молоко", new BigDecimal("1"), "г"),
+                new Operation(Type.UPDATE, 99L, null, new BigDecimal("1"), null),
+                new Operation(Type.ADD, null, " ", new BigDecimal("1"), "г"),
+                new Operation(null, 1L, null, null, null)
+        ));
+
+        assertEquals(0, response.applied());
+        assertEquals(4, response.failed());
+        assertEquals(ErrorMessage.INCORRECT_PRODUCT_UNIT.getMessage() + "мл", response.results().get(0).error());
+        assertEquals(ErrorMessage.USERS_PRODUCT_NOT_FOUND_BY_ID.getMessage(), response.results().get(1).error());
+        assertFalse(response.results().get(2).success());
+        assertFalse(response.results().get(3).success());
+        verifyNoInteractions(transactionTemplate, jdbcTemplate);
+        verify(recipeSearchCache, never()).invalidateUser(any());
+    }
+
+    @Test
+    void testUpdateOfProductMissingFromPantryIsRejected() {
+        when(productRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(
+                product(1L, "молоко", "мл"),
+                product(2L, "соль", "г")
+        ));
+        stubTransaction();
+        when(jdbcTemplate.query(contains("UPDATE users_product"),
+                any(PreparedStatementSetter.class), rowMapper()))
+                .thenReturn(List.of());
+        when(jdbcTemplate.query(contains("SET quantity = EXCLUDED.quantity"),
+                any(PreparedStatementSetter.class), rowMapper()))
+                .thenReturn(List.of(Map.entry(2L, new BigDecimal("30"))));
+
+        PantrySyncResponse response = pantrySyncService.sync(7L, List.of(
+                new Operation(Type.UPDATE, 1L, null, new BigDecimal("100"), null),
+                new Operation(Type.DELETE, 2L, null, null, null),
+                new Operation(Type.UPDATE, 2L, null, new BigDecimal("30"), null)
+        ));
+
+        assertEquals(2, response.applied());
+        assertEquals(1, response.failed());
+        assertEquals(ErrorMessage.USERS_PRODUCT_NOT_FOUND_BY_ID.getMessage(), response.results().get(0).error());
+        assertEquals(new BigDecimal("30"), response.results().get(2).product().getQuantity());
+    }
+
+    @Test
+    void testQuantitiesOutsideTheColumnAreRejectedPerOperation() {
+        when(productRepository.findAllById(Set.of(1L))).thenReturn(List.of(product(1L, "молоко", "мл")));
+        stubTransaction();
+        when(jdbcTemplate.query(contains("UPDATE users_product"), any(PreparedStatementSetter.class), rowMapper()))
+                .thenReturn(List.of(Map.entry(1L, new BigDecimal("9999999.999"))));
+
+        PantrySyncResponse response = pantrySyncService.sync(7L, List.of(
+                new Operation(Type.ADD, null, "соль", new BigDecimal("10000000"), "г"),
+                new Operation(Type.UPDATE, 1L, null, new BigDecimal("9999999.9999"), null),
+                new Operation(Type.UPDATE, 1L, null, new BigDecimal("9999999.999"), null)
+        ));
+
+        assertEquals(1, response.applied());
+        assertEquals(ErrorMessage.INCORRECT_PRODUCT_QUANTITY.getMessage(), response.results().get(0).error());
+        assertEquals(ErrorMessage.INCORRECT_PRODUCT_QUANTITY.getMessage(), response.results().get(1).error());
+        verifyNoInteractions(productElasticService);
+    }
+
+    @Test
+    void testSyncForDeletedUserIsReportedAsNotFound() {
+        when(productRepository.findAllById(Set.of(1L))).thenReturn(List.of(product(1L, "молоко", "мл")));
+        stubTransaction();
+        when(jdbcTemplate.query(contains("SET quantity = EXCLUDED.quantity"), any(PreparedStatementSetter.class),
+                rowMapper())).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new SQLException("ERROR: insert or update on table \"users_product\" violates foreign key constraint\n"
+                        + "  Detail: Key (user_id)=(7) is not present in table \"users\".",
+                        SqlErrors.FOREIGN_KEY_VIOLATION)));
+
+        NoSuchElementException exception = assertThrows(NoSuchElementException.class, () -> pantrySyncService.sync(7L,
+                List.of(new Operation(Type.DELETE, 1L, null, null, null),
+                        new Operation(Type.UPDATE, 1L, null, new BigDecimal("2"), null))));
+
+        assertEquals(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(7L), exception.getMessage());
+        verify(recipeSearchCache, never()).invalidateUser(any());
+    }
+
+    @Test
+    void testEmptyOrOversizedSyncIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> pantrySyncService.sync(7L, List.of()));
+        List<Operation> tooMany = Collections.nCopies(PantrySyncService.MAX_OPERATIONS + 1,
+                new Operation(Type.DELETE, 1L, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> pantrySyncService.sync(7L, tooMany));
+    }
+
+    private static RowMapper<Map.Entry<Long, BigDecimal>> rowMapper() {
+        return ArgumentMatchers.any();
+    }
+
+    private void stubTransaction() {
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+}
@@ -0,0 +1,176 @@
+package com.recipemaster.recipeservice.unit;
+
+import com.recipemaster.entities.ProductEntity;
+import com.recipemaster.entities.ProductIndexOutboxEntity;
+import com.recipemaster.recipeservice.config.ProductLookupProperties;
+import com.recipemaster.recipeservice.repository.ProductIndexOutboxRepository;
+import com.recipemaster.recipeservice.repository.ProductRepository;
+import com.recipemaster.recipeservice.service.ProductElasticService;
+import com.recipemaster.recipeservice.service.ProductNearCache;
+import com.recipemaster.recipeservice.service.ProductSearchBackend;
+import com.recipemaster.recipeservice.service.ProductSuggestIndex;
+import com.recipemaster.recipeservice.service.ProductTrigramMatcher;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.recipemaster.recipeservice.unit.ProductFixtures.product;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductElasticServiceUnitTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductSearchBackend productSearchBackend;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ProductIndexOutboxRepository productIndexOutboxRepository;
+
+    @Mock
+    private ProductTrigramMatcher productTrigramMatcher;
+
+    @Mock
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Spy
+    private CircuitBreaker productSearchCircuitBreaker = CircuitBreaker.ofDefaults("productSearch");
+
+    @Spy
+    private ProductNearCache productNearCache = new ProductNearCache(
+            lookupProperties(),
+            new SimpleMeterRegistry()
+    );
+
+    @InjectMocks
+    private ProductElasticService productElasticService;
+
+    @Test
+    void testConcurrentCallersShareOneResolution() throws Exception {
+        when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), ArgumentMatchers.<RowMapper<ProductEntity>>any()))
+                .thenReturn(List.of(product(5L, "куркума", "г")));
+
+        AtomicReference<CompletableFuture<ProductEntity>> follower = new AtomicReference<>();
+        AtomicReference<Thread> followerThread = new AtomicReference<>();
+        when(productSearchBackend.findMatchingNames(List.of("куркума")))
+                .thenAnswer(invocation -> {
+                    follower.set(CompletableFuture.supplyAsync(() -> {
+                        followerThread.set(Thread.currentThread());
+                        return productElasticService.findOrCreate("куркума", "г");
+                    }));
+                    awaitParked(followerThread);
+                    return Map.of();
+                });
+
+        ProductEntity leader = productElasticService.findOrCreate("куркума", "г");
+        ProductEntity shared = follower.get().get(5, TimeUnit.SECONDS);
+
+        assertEquals(5L, leader.getId());
+        assertEquals(5L, shared.getId());
+        assertNotSame(leader, shared);
+        verify(productSearchBackend, times(1)).findMatchingNames(any());
+        verify(jdbcTemplate, times(1)).query(anyString(), any(PreparedStatementSetter.class), ArgumentMatchers.<RowMapper<ProductEntity>>any());
+        verify(productSearchBackend, never()).index(any());
+        verify(productSearchBackend).productsStored(List.of(leader));
+        verify(productIndexOutboxRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void testExistingProductIsNotCreatedAgain() throws Exception {
+        when(productSearchBackend.findMatchingNames(List.of("соль"))).thenReturn(Map.of());
+        when(productRepository.findAllByLowerNameIn(any())).thenReturn(List.of(product(3L, "соль", "г")));
+
+        Map<String, ProductEntity> products = productElasticService.findOrCreateAll(List.of(
+                new ProductElasticService.ProductKey("соль", "г"),
+                new ProductElasticService.ProductKey("Соль", "г")
+        ));
+
+        assertEquals(3L, products.get("соль").getId());
+        assertEquals(3L, products.get("Соль").getId());
+        verify(jdbcTemplate, never()).query(anyString(), any(PreparedStatementSetter.class), ArgumentMatchers.<RowMapper<ProductEntity>>any());
+        verify(productIndexOutboxRepository).saveAll(argThat((List<ProductIndexOutboxEntity> entries) ->
+                entries.size() == 1 && entries.get(0).getProductId() == 3L));
+        assertTrue(productNearCache.get("соль", "г") != null);
+    }
+
+    @Test
+    void testSearchFailureFallsBackToTrigramMatching() {
+        when(productSearchBackend.findMatchingNames(List.of("помидоры")))
+                .thenThrow(new RuntimeException("Ошибка при поиске в Elasticsearch"));
+        when(productTrigramMatcher.findMatchingNames(List.of("помидоры"))).thenReturn(Map.of("помидоры", "помидор"));
+        when(productRepository.findAllByLowerNameIn(any())).thenReturn(List.of(product(4L, "помидор", "шт")));
+
+        ProductEntity product = productElasticService.findOrCreate("помидоры", "шт");
+
+        assertEquals(4L, product.getId());
+        assertFalse(productNearCache.isKnownUnmatched("помидоры"));
+        assertNull(productNearCache.get("помидоры", "шт"));
+        verify(productIndexOutboxRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void testOpenBreakerSkipsSearchBackend() {
+        productSearchCircuitBreaker.transitionToOpenState();
+        when(productTrigramMatcher.findMatchingNames(List.of("соль"))).thenReturn(Map.of());
+        when(productRepository.findAllByLowerNameIn(any())).thenReturn(List.of(product(3L, "соль", "г")));
+
+        ProductEntity product = productElasticService.findOrCreate("соль", "г");
+
+        assertEquals(3L, product.getId());
+        verify(productSearchBackend, never()).findMatchingNames(any());
+        verify(productTrigramMatcher).findMatchingNames(List.of("соль"));
+    }
+
+    private static void awaitParked(AtomicReference<Thread> thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            Thread t = thread.get();
+            if (t != null && (t.getState() == Thread.State.WAITING || t.getState() == Thread.State.TIMED_WAITING)) {
+                return;
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    static ProductLookupProperties lookupProperties() {
+        return new ProductLookupProperties(
+                ProductLookupProperties.Backend.ELASTICSEARCH,
+                new ProductLookupProperties.Cache(100, Duration.ofMinutes(1), Duration.ofSeconds(30)),
+                new ProductLookupProperties.Lucene("../hunspell/ru_RU", "ru_RU", "../synonyms/ru_synonyms.txt",
+                        Duration.ofSeconds(5), Duration.ofMinutes(10)),
+                new ProductLookupProperties.Breaker(50, 50, Duration.ofMillis(500), 20, 10, Duration.ofSeconds(30), 5)
+        );
+    }
+}
@@ -0,0 +1,21 @@
+package com.recipemaster.recipeservice.unit;
+
+import com.recipemaster.entities.ProductEntity;
+
+final class ProductFixtures {
+
+    private ProductFixtures() {
+    }
+
+    static ProductEntity product(Long id, String name) {
+        return product(id, name, null);
+    }
+
+    static ProductEntity product(Long id, String name, String unit) {
+        ProductEntity product = new ProductEntity();
+        product.setId(id);
+        product.setName(name);
+        product.setUnit(unit);
+        return product;
+    }
+}
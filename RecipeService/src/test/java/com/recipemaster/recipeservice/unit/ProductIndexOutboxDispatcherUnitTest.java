@@ -0,0 +1,146 @@
+package com.recipemaster.recipeservice.unit;
+
+import com.recipemaster.entities.ProductEntity;
+import com.recipemaster.entities.ProductIndexOutboxEntity;
+import com.recipemaster.recipeservice.config.ProductOutboxProperties;
+import com.recipemaster.recipeservice.repository.ProductIndexOutboxRepository;
+import com.recipemaster.recipeservice.repository.ProductRepository;
+import com.recipemaster.recipeservice.service.ProductIndexOutboxDispatcher;
+import com.recipemaster.recipeservice.service.ProductSearchBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static com.recipemaster.recipeservice.unit.ProductFixtures.product;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductIndexOutboxDispatcherUnitTest {
+
+    @Mock
+    private ProductIndexOutboxRepository outboxRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductSearchBackend productSearchBackend;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ProductIndexOutboxRepository.OutboxStats stats;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProductIndexOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new ProductIndexOutboxDispatcher(
+                outboxRepository,
+                productRepository,
+                productSearchBackend,
+                transactionTemplate,
+                new ProductOutboxProperties(true, 10, Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofSeconds(3),
+                        5),
+                meterRegistry
+        );
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(outboxRepository.getStats()).thenReturn(stats);
+        when(stats.getPending()).thenReturn(0L);
+        when(stats.getLagSeconds()).thenReturn(0.0);
+    }
+
+    @Test
+    void testDeliveredEntriesAreDeleted() {
+        List<ProductIndexOutboxEntity> batch = List.of(entry(1L, 7L));
+        List<ProductEntity> products = List.of(product(7L, "Молоко", "мл"));
+        when(outboxRepository.lockDueBatch(10)).thenReturn(batch);
+        when(productRepository.findAllById(List.of(7L))).thenReturn(products);
+
+        dispatcher.dispatch();
+
+        verify(productSearchBackend).index(products);
+        verify(outboxRepository).deleteAllInBatch(batch);
+        verify(outboxRepository, never()).saveAll(any());
+        assertEquals(1.0, meterRegistry.counter("product.outbox.dispatched").count());
+    }
+
+    @Test
+    void testFailedEntriesAreRescheduledWithBackoff() {
+        ProductIndexOutboxEntity first = entry(1L, 7L);
+        ProductIndexOutboxEntity retried = entry(2L, 8L);
+        retried.setAttempts(3);
+        List<ProductIndexOutboxEntity> batch = List.of(first, retried);
+        when(outboxRepository.lockDueBatch(10)).thenReturn(batch);
+        when(productRepository.findAllById(List.of(7L, 8L)))
+                .thenReturn(List.of(product(7L, "Молоко", "мл"), product(8L, "Мука", "г")));
+        doThrow(new IllegalStateException("elasticsearch unavailable")).when(productSearchBackend).index(any());
+
+        Instant before = Instant.now();
+        dispatcher.dispatch();
+
+        verify(outboxRepository, never()).deleteAllInBatch(any());
+        verify(outboxRepository).saveAll(batch);
+        assertEquals(1, first.getAttempts());
+        assertEquals(4, retried.getAttempts());
+        assertTrue(!first.getNextAttemptAt().isBefore(before.plusSeconds(2)));
+        assertTrue(retried.getNextAttemptAt().isBefore(before.plusSeconds(4)));
+        assertEquals("elasticsearch unavailable", first.getLastError());
+        assertEquals(2.0, meterRegistry.counter("product.outbox.failed").count());
+    }
+
+    @Test
+    void testOnlyRejectedEntriesAreRetriedAndExhaustedOnesAreDeadLettered() {
+        ProductIndexOutboxEntity delivered = entry(1L, 7L);
+        ProductIndexOutboxEntity rejected = entry(2L, 8L);
+        ProductIndexOutboxEntity exhausted = entry(3L, 9L);
+        exhausted.setAttempts(4);
+        List<ProductIndexOutboxEntity> batch = List.of(delivered, rejected, exhausted);
+        List<ProductEntity> products =
+                List.of(product(7L, "Молоко", "мл"), product(8L, "Мука", "г"), product(9L, "Соль", "г"));
+        when(outboxRepository.lockDueBatch(10)).thenReturn(batch);
+        when(productRepository.findAllById(List.of(7L, 8L, 9L))).thenReturn(products);
+        when(productSearchBackend.index(products)).thenReturn(Map.of(8L, "mapper_parsing_exception", 9L, "too large"));
+
+        dispatcher.dispatch();
+
+        verify(outboxRepository).deleteAllInBatch(List.of(delivered));
+        verify(outboxRepository).saveAll(List.of(rejected, exhausted));
+        assertEquals(1, rejected.getAttempts());
+        assertNull(rejected.getDeadLetteredAt());
+        assertEquals("mapper_parsing_exception", rejected.getLastError());
+        assertEquals(5, exhausted.getAttempts());
+        assertNotNull(exhausted.getDeadLetteredAt());
+        assertEquals(1.0, meterRegistry.counter("product.outbox.dispatched").count());
+        assertEquals(2.0, meterRegistry.counter("product.outbox.failed").count());
+        assertEquals(1.0, meterRegistry.counter("product.outbox.dead_lettered").count());
+    }
+
+    private static ProductIndexOutboxEntity entry(Long id, Long productId) {
+        ProductIndexOutboxEntity entry = new ProductIndexOutboxEntity(productId);
+        entry.setId(id);
+        return entry;
+    }
+}
@@ -0,0 +1,45 @@
+package com.recipemaster.recipeservice.unit;
+
+import com.recipemaster.entities.ProductEntity;
+import com.recipemaster.recipeservice.service.ProductNearCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductNearCacheUnitTest {
+
+    private final ProductNearCache productNearCache = new ProductNearCache(
+            ProductElasticServiceUnitTest.lookupProperties(),
+            new SimpleMeterRegistry()
+    );
+
+    @Test
+    void testLookupIsKeyedByNormalizedNameAndUnit() {
+        ProductEntity milk = new ProductEntity();
+        milk.setId(7L);
+        milk.setName("молоко");
+        milk.setUnit("мл");
+
+        productNearCache.put("молоко", "мл", milk);
+
+        ProductEntity hit = productNearCache.get(" Молоко ", "МЛ");
+        assertEquals(7L, hit.getId());
+        assertEquals("молоко", hit.getName());
+        assertNotSame(milk, hit);
+        assertNull(productNearCache.get("молоко", "л"));
+    }
+
+    @Test
+    void testUnmatchedNamesAreRemembered() {
+        assertFalse(productNearCache.isKnownUnmatched("куркума"));
+
+        productNearCache.markUnmatched("Куркума");
+
+        assertTrue(productNearCache.isKnownUnmatched("куркума"));
+    }
+}
@@ -0,0 +1,240 @@
+package com.recipemaster.recipeservice.unit;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.indices.DeleteIndexRequest;
+import co.elastic.clients.elasticsearch.indices.ElasticsearchIndicesClient;
+import co.elastic.clients.elasticsearch.indices.ExistsAliasRequest;
+import co.elastic.clients.elasticsearch.indices.ExistsRequest;
+import co.elastic.clients.elasticsearch.indices.GetAliasRequest;
+import co.elastic.clients.elasticsearch.indices.GetAliasResponse;
+import co.elastic.clients.elasticsearch.indices.UpdateAliasesRequest;
+import co.elastic.clients.elasticsearch.indices.get_alias.IndexAliases;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import co.elastic.clients.transport.endpoints.BooleanResponse;
+import co.elastic.clients.util.ObjectBuilder;
+import com.recipemaster.dto.responses.ProductReindexStatusResponse;
+import com.recipemaster.dto.responses.ProductReindexStatusResponse.State;
+import com.recipemaster.recipeservice.config.ProductReindexProperties;
+import com.recipemaster.recipeservice.repository.ProductRepository;
+import com.recipemaster.recipeservice.service.ProductReindexService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductReindexServiceUnitTest {
+    private static final Executor LATER = CompletableFuture.delayedExecutor(20, TimeUnit.MILLISECONDS);
+
+    @Mock
+    private ElasticsearchClient elasticsearchClient;
+
+    @Mock
+    private ElasticsearchIndicesClient indicesClient;
+
+    @Mock
+    private ElasticsearchTransport transport;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private ProductReindexService productReindexService;
+
+    @Captor
+    private ArgumentCaptor<Function<DeleteIndexRequest.Builder, ObjectBuilder<DeleteIndexRequest>>> delete;
+
+    @Captor
+    private ArgumentCaptor<Function<UpdateAliasesRequest.Builder, ObjectBuilder<UpdateAliasesRequest>>> update;
+
+    @BeforeEach
+    void setUp() {
+        when(elasticsearchClient.indices()).thenReturn(indicesClient);
+        when(elasticsearchClient._transport()).thenReturn(transport);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        productReindexService = new ProductReindexService(elasticsearchClient, productRepository, jdbcTemplate,
+                transactionTemplate, new ProductReindexProperties(1, 2, false), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testNoMoreThanMaxInFlightBulkRequestsAreOutstanding() throws Exception {
+        stubProducts(6);
+        AtomicInteger outstanding = new AtomicInteger();
+        AtomicInteger maxOutstanding = new AtomicInteger();
+        when(transport.performRequestAsync(any(), any(), any())).thenAnswer(invocation -> {
+            maxOutstanding.accumulateAndGet(outstanding.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                outstanding.decrementAndGet();
+                return bulkOk();
+            }, LATER);
+        });
+        when(indicesClient.existsAlias(ArgumentMatchers.<Function<ExistsAliasRequest.Builder,
+                ObjectBuilder<ExistsAliasRequest>>>any())).thenReturn(new BooleanResponse(false));
+        when(indicesClient.exists(ArgumentMatchers.<Function<ExistsRequest.Builder, ObjectBuilder<ExistsRequest>>>any()))
+                .thenReturn(new BooleanResponse(false));
+
+        ProductReindexStatusResponse status = awaitFinished(productReindexService.start());
+
+        assertEquals(State.COMPLETED, status.state());
+        assertEquals(6, status.indexed());
+        assertEquals(2, maxOutstanding.get());
+        verify(transport, times(6)).performRequestAsync(any(), any(), any());
+        verify(jdbcTemplate).update(anyString(), any(PreparedStatementSetter.class));
+    }
+
+    @Test
+    void testBulkErrorDeletesNewIndexAndLeavesAliasAlone() throws Exception {
+        stubProducts(3);
+        when(transport.performRequestAsync(any(), any(), any()))
+                .thenAnswer(invocation -> CompletableFuture.supplyAsync(ProductReindexServiceUnitTest::bulkOk, LATER))
+                .thenAnswer(invocation -> CompletableFuture.failedFuture(new IOException("connection reset")))
+                .thenAnswer(invocation -> CompletableFuture.supplyAsync(ProductReindexServiceUnitTest::bulkOk, LATER));
+
+        ProductReindexStatusResponse status = awaitFinished(productReindexService.start());
+
+        assertEquals(State.FAILED, status.state());
+        assertTrue(status.error().contains("connection reset"));
+        verify(indicesClient).delete(delete.capture());
+        assertEquals(List.of(status.index()), delete.getValue().apply(new DeleteIndexRequest.Builder()).build().index());
+        verify(indicesClient, never()).updateAliases(update.capture());
+        verify(jdbcTemplate, never()).update(anyString(), any(PreparedStatementSetter.class));
+    }
+
+    @Test
+    void testAliasSwapRemovesPreviousIndicesAndAddsTheNewOne() throws Exception {
+        stubProducts(1);
+        when(transport.performRequestAsync(any(), any(), any()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(bulkOk()));
+        when(indicesClient.existsAlias(ArgumentMatchers.<Function<ExistsAliasRequest.Builder,
+                ObjectBuilder<ExistsAliasRequest>>>any())).thenReturn(new BooleanResponse(true));
+        when(indicesClient.getAlias(ArgumentMatchers.<Function<GetAliasRequest.Builder,
+                ObjectBuilder<GetAliasRequest>>>any())).thenReturn(GetAliasResponse.of(r -> r.result(Map.of(
+                "products_v1", IndexAliases.of(a -> a.aliases(Map.of())),
+                "products_v2", IndexAliases.of(a -> a.aliases(Map.of()))))));
+
+        ProductReindexStatusResponse status = awaitFinished(productReindexService.start());
+
+        assertEquals(State.COMPLETED, status.state());
+        verify(indicesClient).updateAliases(update.capture());
+        List<String> actions = update.getValue().apply(new UpdateAliasesRequest.Builder()).build().actions().stream()
+                .map(action -> action.isAdd()
+                        ? "add " + action.add().index() + " -> " + action.add().alias()
+                        : "remove " + action.removeIndex().index())
+                .toList();
+        assertEquals(3, actions.size());
+        assertTrue(actions.containsAll(List.of("remove products_v1", "remove products_v2")));
+        assertEquals("add " + status.index() + " -> products", actions.getLast());
+        verify(indicesClient, never()).delete(delete.capture());
+    }
+
+    @Test
+    void testProductsCommittedBehindTheCursorAreQueuedAgain() throws Exception {
+        when(productRepository.count()).thenReturn(3L);
+        when(productRepository.streamAllRows()).thenReturn(Stream.of(1L, 2L, 5L)
+                .map(id -> (ProductRepository.ProductRow) new Row(id, "Продукт " + id, "г")));
+        when(transport.performRequestAsync(any(), any(), any()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(bulkOk()));
+        when(indicesClient.existsAlias(ArgumentMatchers.<Function<ExistsAliasRequest.Builder,
+                ObjectBuilder<ExistsAliasRequest>>>any())).thenReturn(new BooleanResponse(false));
+        when(indicesClient.exists(ArgumentMatchers.<Function<ExistsRequest.Builder, ObjectBuilder<ExistsRequest>>>any()))
+                .thenReturn(new BooleanResponse(false));
+        List<Object[]> arrays = new ArrayList<>();
+        PreparedStatement statement = mock(PreparedStatement.class);
+        Connection connection = mock(Connection.class);
+        when(statement.getConnection()).thenReturn(connection);
+        when(connection.createArrayOf(eq("bigint"), any())).thenAnswer(invocation -> {
+            arrays.add(invocation.getArgument(1));
+            return null;
+        });
+        when(jdbcTemplate.update(contains("id = ANY"), any(PreparedStatementSetter.class))).thenAnswer(invocation -> {
+            invocation.<PreparedStatementSetter>getArgument(1).setValues(statement);
+            return 1;
+        });
+
+        assertEquals(State.COMPLETED, awaitFinished(productReindexService.start()).state());
+
+        verify(statement).setLong(1, 5L);
+        assertEquals(List.of(List.of(3L, 4L)), arrays.stream().map(Arrays::asList).toList());
+    }
+
+    private void stubProducts(int count) {
+        when(productRepository.count()).thenReturn((long) count);
+        when(productRepository.streamAllRows()).thenReturn(LongStream.rangeClosed(1, count)
+                .mapToObj(id -> (ProductRepository.ProductRow) new Row(id, "Продукт " + id, "г")));
+    }
+
+    private ProductReindexStatusResponse awaitFinished(ProductReindexStatusResponse started) throws InterruptedException {
+        assertEquals(State.RUNNING, started.state());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        ProductReindexStatusResponse status = productReindexService.getStatus();
+        while (status.state() == State.RUNNING && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            status = productReindexService.getStatus();
+        }
+        return status;
+    }
+
+    private static BulkResponse bulkOk() {
+        return BulkResponse.of(b -> b.errors(false).items(List.of()).took(1));
+    }
+
+    private record Row(Long id, String name, String unit) implements ProductRepository.ProductRow {
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getUnit() {
+            return unit;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.recipemaster.recipeservice.unit;
+
+import com.recipemaster.dto.ProductSuggestionDto;
+import com.recipemaster.recipeservice.config.ProductSuggestProperties;
+import com.recipemaster.recipeservice.repository.ProductRepository;
+import com.recipemaster.recipeservice.service.ProductSuggestIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.recipemaster.recipeservice.unit.ProductFixtures.product;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSuggestIndexUnitTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductSuggestIndex productSuggestIndex;
+
+    @BeforeEach
+    void setUp() {
+        productSuggestIndex = new ProductSuggestIndex(
+                productRepository,
+                new ProductSuggestProperties(3, Duration.ofMinutes(10)),
+                new SimpleMeterRegistry()
+        );
+        when(productRepository.findAllWithUsage()).thenReturn(List.of(
+                new Usage(1L, "Молоко", "мл", 5L),
+                new Usage(2L, "Мука", "г", 40L),
+                new Usage(3L, "Морковь", "шт", 12L),
+                new Usage(4L, "Сгущённое молоко", "г", 7L),
+                new Usage(5L, "Мёд", "г", 1L),
+                new Usage(6L, "Соль", "г", 30L)
+        ));
+        productSuggestIndex.rebuild();
+    }
+
+    @Test
+    void testPrefixIsRankedByUsage() {
+        assertEquals(List.of(2L, 3L, 4L), ids(productSuggestIndex.suggest("м", 10)));
+        assertEquals(List.of(4L, 1L), ids(productSuggestIndex.suggest("МОЛ", 10)));
+        assertEquals(List.of(2L), ids(productSuggestIndex.suggest("м", 1)));
+    }
+
+    @Test
+    void testNormalizesYoAndSpaces() {
+        assertEquals(List.of(5L), ids(productSuggestIndex.suggest("мед", 10)));
+        assertEquals(List.of(4L), ids(productSuggestIndex.suggest("  сгущенное   мол", 10)));
+    }
+
+    @Test
+    void testUnknownPrefixReturnsNothing() {
+        assertTrue(productSuggestIndex.suggest("хлеб", 10).isEmpty());
+        assertTrue(productSuggestIndex.suggest("моло ко", 10).isEmpty());
+    }
+
+    @Test
+    void testNewProductsAreSuggestedBeforeRebuild() {
+        productSuggestIndex.addAll(List.of(product(7L, "Молочная сыворотка"), product(6L, "Соль")));
+
+        assertEquals(List.of(4L, 1L, 7L), ids(productSuggestIndex.suggest("мол", 10)));
+        assertEquals(List.of(6L), ids(productSuggestIndex.suggest("сол", 10)));
+    }
+
+    @Test
+    void testProductsAddedDuringRebuildSurviveTheSwap() {
+        when(productRepository.findAllWithUsage()).thenAnswer(invocation -> {
+            productSuggestIndex.addAll(List.of(product(7L, "Молочная сыворотка")));
+            return List.of(new Usage(1L, "Молоко", "мл", 5L));
+        });
+
+        productSuggestIndex.rebuild();
+
+        assertEquals(List.of(1L, 7L), ids(productSuggestIndex.suggest("мол", 10)));
+    }
+
+    private static List<Long> ids(List<ProductSuggestionDto> suggestions) {
+        return suggestions.stream().map(ProductSuggestionDto::getId).toList();
+    }
+
+    private record Usage(Long getId, String getName, String getUnit, Long getUsage)
+            implements ProductRepository.ProductUsage {
+    }
+}
@@ -0,0 +1,216 @@
+package com.recipemaster.recipeservice.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.recipemaster.dto.responses.RecipeImportResponse;
+import com.recipemaster.recipeservice.repository.RecipeRepository;
+import com.recipemaster.recipeservice.service.ProductElasticService;
+import com.recipemaster.recipeservice.service.RecipeBulkImportService;
+import com.recipemaster.recipeservice.service.RecipeProductIndex;
+import com.recipemaster.recipeservice.service.RecipeSearchCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static com.recipemaster.recipeservice.unit.ProductFixtures.product;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RecipeBulkImportServiceUnitTest {
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ProductElasticService productElasticService;
+
+    @Spy
+    private RecipeProductIndex recipeProductIndex = new RecipeProductIndex(mock(RecipeRepository.class));
+
+    @Mock
+    private RecipeSearchCache recipeSearchCache;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private RecipeBulkImportService recipeBulkImportService;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> ingredientRows;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void testNdjsonImportReportsBrokenLinesAndKeepsTheRest() throws Exception {
+        when(productElasticService.findOrCreateAll(List.of(key("мука", "г"), key("яйца", "шт"), key("мука", "г"))))
+                .thenReturn(Map.of("мука", product(10L, "мука"), "яйца", product(11L, "яйца")));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(2))).thenReturn(List.of(100L, 101L));
+
+        String body = """
+                {"title":"Блины","ingredients":[{"productName":"Мука","quantity":200,"unit":"г"},{"productName":"яйца","quantity":2,"unit":"шт"}]}
+                {"title":"Сломанный",
+                {"title":"Без ингредиентов","ingredients":[]}
+
+                {"title":"Хлеб","ingredients":[{"productName":"мука","quantity":500,"unit":"г"}]}
+                """;
+
+        RecipeImportResponse report = recipeBulkImportService.importNdjson(stream(body));
+
+        assertEquals(2, report.imported());
+        assertEquals(2, report.failed());
+        assertEquals(List.of(2, 3), report.errors().stream().map(RecipeImportResponse.LineError::line).toList());
+        verify(productElasticService, times(1)).findOrCreateAll(any());
+
+        verify(jdbcTemplate).batchUpdate(eq("INSERT INTO ingredient (recipe_id, product_id, quantity) VALUES (?, ?, ?)"),
+                ingredientRows.capture());
+        assertEquals(3, ingredientRows.getValue().size());
+        assertEquals(List.of(101L, 10L, new BigDecimal("500")), List.of(ingredientRows.getValue().get(2)));
+
+        assertEquals(List.of(100L, 101L), recipeProductIndex.findCandidates(List.of(10L)).recipeIds());
+        verify(recipeSearchCache).invalidateAll();
+    }
+
+    @Test
+    void testJsonArrayImportReportsElementPositions() throws Exception {
+        when(productElasticService.findOrCreateAll(List.of(key("сыр", "г")))).thenReturn(Map.of("сыр", product(12L, "сыр")));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1))).thenReturn(List.of(200L));
+
+        String body = """
+                [
+                  42,
+                  {"title":"Бутерброд","ingredients":[{"productName":"сыр","quantity":30,"unit":"г"}]},
+                  {"ingredients":[{"productName":"сыр","quantity":30,"unit":"г"}]}
+                ]
+                """;
+
+        RecipeImportResponse report = recipeBulkImportService.importJsonArray(stream(body));
+
+        assertEquals(1, report.imported());
+        assertEquals(List.of(1, 3), report.errors().stream().map(RecipeImportResponse.LineError::line).toList());
+    }
+
+    @Test
+    void testJsonImportRejectsNonArrayBody() {
+        assertThrows(IllegalArgumentException.class,
+                () -> recipeBulkImportService.importJsonArray(stream("{\"title\":\"Блины\"}")));
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    @Test
+    void testFailedChunkIsRetriedInHalvesToFindTheBadLine() throws Exception {
+        when(productElasticService.findOrCreateAll(any())).thenReturn(Map.of("соль", product(13L, "соль")));
+        AtomicLong nextId = new AtomicLong(300);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), anyInt())).thenAnswer(invocation ->
+                LongStream.range(0, invocation.<Integer>getArgument(2)).mapToObj(i -> nextId.getAndIncrement()).toList());
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO recipe "), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            if (rows.stream().anyMatch(row -> "Второй".equals(row[1]))) {
+                throw new DataIntegrityViolationException("duplicate key value violates unique constraint");
+            }
+            return new int[rows.size()];
+        });
+
+        String body = """
+                {"title":"Первый","ingredients":[{"productName":"соль","quantity":1}]}
+                {"title":"Второй","ingredients":[{"productName":"соль","quantity":2}]}
+                {"title":"Третий","ingredients":[{"productName":"соль","quantity":3}]}
+                """;
+
+        RecipeImportResponse report = recipeBulkImportService.importNdjson(stream(body));
+
+        assertEquals(2, report.imported());
+        assertEquals(1, report.failed());
+        assertEquals(List.of(2), report.errors().stream().map(RecipeImportResponse.LineError::line).toList());
+        assertFalse(report.errors().getFirst().message().contains("duplicate key"));
+        verify(recipeSearchCache).invalidateAll();
+    }
+
+    @Test
+    void testUnreachableDatabaseFailsTheChunkWithoutLeakingTheError() throws Exception {
+        when(productElasticService.findOrCreateAll(any())).thenReturn(Map.of("соль", product(13L, "соль")));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(2)))
+                .thenThrow(new DataAccessResourceFailureException("Connection to db:5432 refused"));
+
+        String body = """
+                {"title":"Первый","ingredients":[{"productName":"соль","quantity":1}]}
+                {"title":"Второй","ingredients":[{"productName":"соль","quantity":2}]}
+                """;
+
+        RecipeImportResponse report = recipeBulkImportService.importNdjson(stream(body));
+
+        assertEquals(2, report.failed());
+        assertTrue(report.errors().stream().noneMatch(error -> error.message().contains("5432")));
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(recipeSearchCache, never()).invalidateAll();
+    }
+
+    @Test
+    void testValuesOutsideTheColumnsAreRejectedBeforeInsert() throws Exception {
+        String body = """
+                {"title":"%s","ingredients":[{"productName":"соль","quantity":1}]}
+                {"title":"Рассол","ingredients":[{"productName":"соль","quantity":10000000}]}
+                {"title":"Щепотка","ingredients":[{"productName":"соль","quantity":9999999.9999}]}
+                """.formatted("Щ".repeat(256));
+
+        RecipeImportResponse report = recipeBulkImportService.importNdjson(stream(body));
+
+        assertEquals(0, report.imported());
+        assertEquals(List.of(1, 2, 3), report.errors().stream().map(RecipeImportResponse.LineError::line).toList());
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ProductElasticService.ProductKey key(String name, String unit) {
+        return new ProductElasticService.ProductKey(name, unit);
+    }
+}
@@ -0,0 +1,223 @@
+package com.recipemaster.recipeservice.unit;
+
+import com.recipemaster.dto.PopularRecipeDto;
+import com.recipemaster.dto.RecipeSummaryDto;
+import com.recipemaster.recipeservice.config.RecipePopularityProperties;
+import com.recipemaster.recipeservice.repository.RecipeRepository;
+import com.recipemaster.recipeservice.service.RecipePopularityIndex;
+import com.recipemaster.recipeservice.service.RecipePopularityIndex.RecipeCount;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RecipePopularityIndexUnitTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private RecipeRepository recipeRepository;
+
+    private RecipePopularityIndex recipePopularityIndex;
+
+    @BeforeEach
+    void setUp() {
+        recipePopularityIndex = new RecipePopularityIndex(jdbcTemplate, transactionTemplate, recipeRepository,
+                new RecipePopularityProperties(2, Duration.ofSeconds(30), Duration.ofMinutes(5)), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testRebuildPublishesTopRecipesOverallAndPerCategory() {
+        when(jdbcTemplate.query(contains("FROM recipe_stats rs"), ArgumentMatchers.<RowMapper<RecipeCount>>any())).thenReturn(List.of(
+                new RecipeCount(1L, "Завтрак", 5),
+                new RecipeCount(2L, "Завтрак", 9),
+                new RecipeCount(3L, "Ужин", 7),
+                new RecipeCount(4L, "Ужин", 0)
+        ));
+        when(recipeRepository.findSummariesByIdIn(Set.of(1L, 2L, 3L))).thenReturn(List.of(
+                summary(1L, "Омлет", "Завтрак"),
+                summary(2L, "Сырники", "Завтрак"),
+                summary(3L, "Плов", "Ужин")
+        ));
+
+        recipePopularityIndex.rebuild();
+
+        assertEquals(List.of(2L, 3L), ids(recipePopularityIndex.getPopular(null, 2)));
+        assertEquals(List.of(2L, 1L), ids(recipePopularityIndex.getPopular("Завтрак", 2)));
+        assertEquals(List.of(3L), ids(recipePopularityIndex.getPopular("Ужин", 2)));
+        assertEquals(9L, recipePopularityIndex.getPopular(null, 1).getFirst().getFavoriteCount());
+        assertTrue(recipePopularityIndex.getPopular("Десерт", 2).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> recipePopularityIndex.getPopular(null, 3));
+    }
+
+    @Test
+    void testFlushWritesNetDeltasInOneStatement() throws Exception {
+        List<Object[]> arrays = new ArrayList<>();
+        when(jdbcTemplate.query(contains("unnest"), any(PreparedStatementSetter.class), ArgumentMatchers.<RowMapper<RecipeCount>>any()))
+                .thenAnswer(invocation -> {
+                    invocation.<PreparedStatementSetter>getArgument(1).setValues(statementCapturing(arrays));
+                    return List.of(new RecipeCount(1L, "Завтрак", 2));
+                });
+        when(recipeRepository.findSummariesByIdIn(Set.of(1L))).thenReturn(List.of(summary(1L, "Омлет", "Завтрак")));
+
+        recipePopularityIndex.favoriteAdded(1L);
+        recipePopularityIndex.favoriteAdded(1L);
+        recipePopularityIndex.favoriteAdded(2L);
+        recipePopularityIndex.favoriteRemoved(2L);
+        recipePopularityIndex.flush();
+
+        assertEquals(List.of(List.of(1L), List.of(2L)), arrays.stream().map(Arrays::asList).toList());
+        List<PopularRecipeDto> popular = recipePopularityIndex.getPopular(null, 2);
+        assertEquals(List.of(1L), ids(popular));
+        assertEquals(2L, popular.getFirst().getFavoriteCount());
+
+        recipePopularityIndex.flush();
+        verify(jdbcTemplate).query(anyString(), any(PreparedStatementSetter.class), ArgumentMatchers.<RowMapper<RecipeCount>>any());
+    }
+
+    @Test
+    void testFailedFlushKeepsDeltasForTheNextFlush() throws Exception {
+        List<Object[]> arrays = new ArrayList<>();
+        when(jdbcTemplate.query(contains("unnest"), any(PreparedStatementSetter.class), ArgumentMatchers.<RowMapper<RecipeCount>>any()))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"))
+                .thenAnswer(invocation -> {
+                    invocation.<PreparedStatementSetter>getArgument(1).setValues(statementCapturing(arrays));
+                    return List.of();
+                });
+
+        recipePopularityIndex.favoriteAdded(1L);
+        recipePopularityIndex.flush();
+        recipePopularityIndex.favoriteAdded(1L);
+        recipePopularityIndex.flush();
+
+        assertEquals(List.of(List.of(1L), List.of(2L)), arrays.stream().map(Arrays::asList).toList());
+        verify(recipeRepository, never()).findSummariesByIdIn(any());
+    }
+
+    @Test
+    void testRebuildRecountsAndKeepsOnlyDeltasRecordedAfterTheRecount() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        List<Object[]> arrays = new ArrayList<>();
+        when(jdbcTemplate.query(contains("unnest"), any(PreparedStatementSetter.class),
+                ArgumentMatchers.<RowMapper<RecipeCount>>any())).thenAnswer(invocation -> {
+                    invocation.<PreparedStatementSetter>getArgument(1).setValues(statementCapturing(arrays));
+                    return List.of();
+                });
+
+        recipePopularityIndex.favoriteAdded(1L);
+        recipePopularityIndex.rebuild();
+        recipePopularityIndex.favoriteAdded(2L);
+        recipePopularityIndex.flush();
+
+        InOrder recount = inOrder(jdbcTemplate);
+        recount.verify(jdbcTemplate).execute(contains("pg_advisory_xact_lock"));
+        recount.verify(jdbcTemplate).update(contains("DELETE FROM recipe_stats"));
+        recount.verify(jdbcTemplate).update(contains("FROM favorite_recipe"));
+        recount.verify(jdbcTemplate).query(contains("FROM recipe_stats rs"),
+                ArgumentMatchers.<RowMapper<RecipeCount>>any());
+        assertEquals(List.of(List.of(2L), List.of(1L)), arrays.stream().map(Arrays::asList).toList());
+    }
+
+    @Test
+    void testReloadPicksUpCountsFlushedByOtherInstances() {
+        when(jdbcTemplate.query(contains("FROM recipe_stats rs"), ArgumentMatchers.<RowMapper<RecipeCount>>any()))
+                .thenReturn(List.of(new RecipeCount(1L, "Завтрак", 5)))
+                .thenReturn(List.of(new RecipeCount(1L, "Завтрак", 5), new RecipeCount(2L, "Ужин", 8)))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+        when(recipeRepository.findSummariesByIdIn(any())).thenReturn(List.of(
+                summary(1L, "Омлет", "Завтрак"),
+                summary(2L, "Плов", "Ужин")
+        ));
+
+        recipePopularityIndex.reload();
+        assertEquals(List.of(1L), ids(recipePopularityIndex.getPopular(null, 2)));
+
+        recipePopularityIndex.reload();
+        assertEquals(List.of(2L, 1L), ids(recipePopularityIndex.getPopular(null, 2)));
+
+        recipePopularityIndex.reload();
+        assertEquals(List.of(2L, 1L), ids(recipePopularityIndex.getPopular(null, 2)));
+    }
+
+    @Test
+    void testDeltaInsideTransactionIsRecordedOnlyAfterCommit() {
+        when(jdbcTemplate.query(contains("unnest"), any(PreparedStatementSetter.class), ArgumentMatchers.<RowMapper<RecipeCount>>any()))
+                .thenReturn(List.of());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            recipePopularityIndex.favoriteAdded(1L);
+            recipePopularityIndex.flush();
+            verify(jdbcTemplate, never()).query(anyString(), any(PreparedStatementSetter.class), ArgumentMatchers.<RowMapper<RecipeCount>>any());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        recipePopularityIndex.flush();
+
+        verify(jdbcTemplate).query(anyString(), any(PreparedStatementSetter.class), ArgumentMatchers.<RowMapper<RecipeCount>>any());
+    }
+
+    private static PreparedStatement statementCapturing(List<Object[]> arrays) throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        Connection connection = mock(Connection.class);
+        when(statement.getConnection()).thenReturn(connection);
+        when(connection.createArrayOf(eq("bigint"), any())).thenAnswer(invocation -> {
+            arrays.add(invocation.getArgument(1));
+            return null;
+        });
+        return statement;
+    }
+
+    private static RecipeSummaryDto summary(Long id, String title, String category) {
+        return new RecipeSummaryDto(id, title, "", category);
+    }
+
+    private static List<Long> ids(List<PopularRecipeDto> recipes) {
+        return recipes.stream().map(PopularRecipeDto::getId).toList();
+    }
+}
@@ -3,35 +3,65 @@ package com.recipemaster.recipeservice.unit;
 import com.recipemaster.dto.IngredientDto;
 import com.recipemaster.dto.RecipeDto;
 import com.recipemaster.dto.RecipeInputDto;
+import com.recipemaster.dto.RecipeSummaryDto;
+import com.recipemaster.dto.UserProductInfoDto;
+import com.recipemaster.dto.responses.FavoriteRecipePageResponse;
+import com.recipemaster.dto.responses.RecipePageResponse;
+import com.recipemaster.entities.IngredientEntity;
 import com.recipemaster.entities.ProductEntity;
 import com.recipemaster.entities.RecipeEntity;
-import com.recipemaster.entities.UserEntity;
+import com.recipemaster.enums.ErrorMessage;
+import com.recipemaster.recipeservice.config.RecipeSearchProperties;
+import com.recipemaster.recipeservice.config.RecipeSearchProperties.ScoringKernel;
+import com.recipemaster.recipeservice.config.RecipeSearchProperties.ScoringStrategy;
 import com.recipemaster.recipeservice.repository.RecipeRepository;
-import com.recipemaster.recipeservice.repository.UserRepository;
 import com.recipemaster.recipeservice.repository.UsersProductRepository;
+import com.recipemaster.recipeservice.service.ParallelRecipeScorer;
 import com.recipemaster.recipeservice.service.ProductElasticService;
+import com.recipemaster.recipeservice.service.RecipePopularityIndex;
+import com.recipemaster.recipeservice.service.RecipeProductIndex;
+import com.recipemaster.recipeservice.service.RecipeSearchCache;
 import com.recipemaster.recipeservice.service.RecipeService;
+import com.recipemaster.recipeservice.utils.SqlErrors;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
+import static com.recipemaster.recipeservice.unit.ProductFixtures.product;
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -41,9 +71,6 @@ class RecipeServiceUnitTest {
     @Mock
     private RecipeRepository recipeRepository;
 
-    @Mock
-    private UserRepository userRepository;
-
     @Mock
     private UsersProductRepository usersProductRepository;
 
@@ -53,42 +80,108 @@ class RecipeServiceUnitTest {
     @Mock
     private ProductElasticService productElasticService;
 
+    @Mock
+    private RecipePopularityIndex recipePopularityIndex;
+
+    @Spy
+    private RecipeProductIndex recipeProductIndex = new RecipeProductIndex(mock(RecipeRepository.class));
+
+    @Spy
+    private RecipeSearchProperties recipeSearchProperties = new RecipeSearchProperties(
+            ScoringStrategy.INDEX,
+            ScoringKernel.PRIMITIVE,
+            new RecipeSearchProperties.Cache(100, Duration.ofMinutes(1)),
+            new RecipeSearchProperties.Parallel(true, 4, 1000, 2)
+    );
+
+    @Spy
+    private ParallelRecipeScorer parallelRecipeScorer = new ParallelRecipeScorer(recipeSearchProperties);
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private RecipeSearchCache recipeSearchCache = new RecipeSearchCache(recipeSearchProperties, new SimpleMeterRegistry());
+
     @Test
-    void testReturnOfAllRecipesWhenCategoryAbsent() {
-        List<RecipeEntity> expectedRecipes = Arrays.asList(
-                new RecipeEntity("Pasta", "Italian", "Make pasta"),
-                new RecipeEntity( "Salad", "Healthy", "Make salad")
-        );
-        
-        when(recipeRepository.findAll()).thenReturn(expectedRecipes);
+    void testRecipesPageReturnsCursorWhenPageIsFull() {
+        ProductEntity flour = product(1L, "flour");
+        RecipeEntity first = recipe(3L, "Bread", ingredient(flour, "500"));
+        RecipeEntity second = recipe(7L, "Pancakes", ingredient(flour, "200"));
 
-        List<RecipeDto> result = recipeService.getAllRecipes(null);
+        when(recipeRepository.findIdsByCategoryAfter(eq("Baking"), eq(2L), any(Limit.class))).thenReturn(List.of(3L, 7L));
+        when(recipeRepository.findWithIngredientsByIdIn(List.of(3L, 7L))).thenReturn(List.of(second, first));
 
+        RecipePageResponse page = recipeService.getRecipesPage("Baking", 2L, 2);
 
-        assertEquals(
-                new HashSet<>(List.of("Pasta", "Salad")),
-                new HashSet<>(result.stream().map(RecipeDto::getTitle).toList())
-        );
-        verify(recipeRepository).findAll();
-        verify(recipeRepository, never()).findByCategory(any());
+        assertEquals(List.of("Bread", "Pancakes"), page.items().stream().map(RecipeDto::getTitle).toList());
+        assertEquals(7L, page.nextAfterId());
+        verify(recipeRepository).findIdsByCategoryAfter("Baking", 2L, Limit.of(2));
+        verify(recipeRepository, never()).findIdsAfter(any(Long.class), any());
     }
 
     @Test
-    void testReturnOfRecipesWhenCategoryProvided() {
-        String category = "Italian";
-        List<RecipeEntity> expectedRecipes = Collections.singletonList(
-                new RecipeEntity("Pasta", category, "Make pasta")
-        );
+    void testRecipesPageEndsWithoutCursor() {
+        ProductEntity flour = product(1L, "flour");
+        RecipeEntity only = recipe(9L, "Bread", ingredient(flour, "500"));
 
-        when(recipeRepository.findByCategory(category)).thenReturn(expectedRecipes);
+        when(recipeRepository.findIdsAfter(0L, Limit.of(50))).thenReturn(List.of(9L));
+        when(recipeRepository.findWithIngredientsByIdIn(List.of(9L))).thenReturn(List.of(only));
 
-        List<RecipeDto> result = recipeService.getAllRecipes(category);
+        RecipePageResponse page = recipeService.getRecipesPage(null, null, 50);
 
-        assertEquals(1, result.size());
-        assertEquals("Pasta", result.getFirst().getTitle());
-        assertEquals(category, result.getFirst().getCategory());
-        verify(recipeRepository).findByCategory(category);
-        verify(recipeRepository, never()).findAll();
+        assertEquals(1, page.items().size());
+        assertNull(page.nextAfterId());
+    }
+
+    @Test
+    void testRecipesPageRejectsOversizedPage() {
+        assertThrows(IllegalArgumentException.class, () -> recipeService.getRecipesPage(null, null, 501));
+        assertThrows(IllegalArgumentException.class, () -> recipeService.getRecipesPage(null, -1L, 10));
+        verify(recipeRepository, never()).findIdsAfter(any(Long.class), any());
+    }
+
+    @Test
+    void testFavoriteIdsAreLookedUpOnlyForGivenRecipes() {
+        when(recipeRepository.findFavoriteIdsIn(1L, List.of(3L, 5L, 8L))).thenReturn(List.of(5L));
+
+        assertEquals(List.of(5L), recipeService.getFavoriteIds(1L, List.of(3L, 5L, 8L)));
+        assertTrue(recipeService.getFavoriteIds(1L, List.of()).isEmpty());
+        List<Long> tooMany = LongStream.rangeClosed(1, 501).boxed().toList();
+        assertThrows(IllegalArgumentException.class, () -> recipeService.getFavoriteIds(1L, tooMany));
+        verify(recipeRepository).findFavoriteIdsIn(any(), any());
+    }
+
+    @Test
+    void testStreamRecipesFiltersByCategory() {
+        RecipeRepository.RecipeRow pasta = row(5L, "Pasta", "flour", "300");
+        when(recipeRepository.streamRecipeRows("Italian")).thenReturn(Stream.of(pasta));
+
+        List<RecipeDto> streamed = new ArrayList<>();
+        recipeService.streamRecipes("Italian", streamed::add);
+
+        assertEquals(List.of("Pasta"), streamed.stream().map(RecipeDto::getTitle).toList());
+        verify(recipeRepository, never()).streamRecipeRows(null);
+    }
+
+    @Test
+    void testStreamRecipesGroupsRowsByRecipe() {
+        Stream<RecipeRepository.RecipeRow> rows = Stream.of(
+                row(1L, "Omelette", "egg", "2"),
+                row(1L, "Omelette", "milk", "100"),
+                row(2L, "Toast", null, null),
+                row(4L, "Pancakes", "flour", "200")
+        );
+        when(recipeRepository.streamRecipeRows(null)).thenReturn(rows);
+
+        List<RecipeDto> streamed = new ArrayList<>();
+        recipeService.streamRecipes("", streamed::add);
+
+        assertEquals(List.of("Omelette", "Toast", "Pancakes"), streamed.stream().map(RecipeDto::getTitle).toList());
+        assertEquals(List.of("egg", "milk"),
+                streamed.getFirst().getIngredients().stream().map(IngredientDto::getProductName).toList());
+        assertTrue(streamed.get(1).getIngredients().isEmpty());
+        assertEquals(1, streamed.get(2).getIngredients().size());
     }
 
     @Test
@@ -104,10 +197,11 @@ class RecipeServiceUnitTest {
         inputDto.setIngredients(Collections.singletonList(ingredientInput));
 
         ProductEntity product = new ProductEntity();
+        product.setId(1L);
         product.setName("Test Product");
         product.setUnit("kg");
 
-        when(productElasticService.findOrCreate(any(),any())).thenReturn(product);
+        when(productElasticService.findOrCreateAll(any())).thenReturn(Map.of("test product", product));
         when(recipeRepository.save(any(RecipeEntity.class))).thenAnswer(invocation -> {
             RecipeEntity saved = invocation.getArgument(0);
             saved.setId(1L);
@@ -121,20 +215,43 @@ class RecipeServiceUnitTest {
         assertEquals("Test Recipe", result.getTitle());
         assertEquals(1, result.getIngredients().size());
         assertEquals("Test Product", result.getIngredients().getFirst().getProductName());
-        verify(productElasticService).findOrCreate(any(),any());
+        verify(productElasticService).findOrCreateAll(List.of(new ProductElasticService.ProductKey("test product", null)));
         verify(recipeRepository).save(any(RecipeEntity.class));
+        verify(recipeProductIndex).register(any(RecipeEntity.class));
     }
 
     @Test
     void testSearchOfRecipesByUserProductsWhenUserProductsAbsent() {
         Long userId = 1L;
 
-        when(usersProductRepository.findAllByUserId(userId)).thenReturn(Collections.emptyList());
+        when(usersProductRepository.findProductInfoByUserId(userId)).thenReturn(Collections.emptyList());
 
         List<RecipeDto> result = recipeService.searchRecipesByUserProducts(userId);
 
         assertTrue(result.isEmpty());
-        verify(usersProductRepository).findAllByUserId(userId);
+        verify(usersProductRepository).findProductInfoByUserId(userId);
+        verify(recipeRepository, never()).findAll();
+    }
+
+    @Test
+    void testSearchOfRecipesByUserProductsScoresOnlyIndexedCandidates() {
+        Long userId = 1L;
+        ProductEntity milk = product(1L, "milk");
+        ProductEntity eggs = product(2L, "eggs");
+        ProductEntity flour = product(3L, "flour");
+
+        RecipeEntity pancakes = recipe(10L, "Pancakes", ingredient(milk, "2"), ingredient(eggs, "2"));
+        RecipeEntity latte = recipe(11L, "Latte", ingredient(milk, "1"));
+        recipeProductIndex.register(pancakes);
+        recipeProductIndex.register(latte);
+        recipeProductIndex.register(recipe(12L, "Bread", ingredient(flour, "1")));
+
+        when(usersProductRepository.findProductInfoByUserId(userId)).thenReturn(List.of(pantryItem(milk, "1")));
+        when(recipeRepository.findWithIngredientsByIdIn(List.of(11L, 10L))).thenReturn(List.of(pancakes, latte));
+
+        List<RecipeDto> result = recipeService.searchRecipesByUserProducts(userId);
+
+        assertEquals(List.of("Latte", "Pancakes"), result.stream().map(RecipeDto::getTitle).toList());
         verify(recipeRepository, never()).findAll();
     }
 
@@ -142,92 +259,295 @@ class RecipeServiceUnitTest {
     void testAdditionOfRecipeToFavorites() {
         Long userId = 1L;
         Long recipeId = 1L;
-        UserEntity user = new UserEntity();
-        user.setId(userId);
-        RecipeEntity recipe = new RecipeEntity();
+        RecipeEntity recipe = new RecipeEntity("Recipe 1", "Category", "Desc");
         recipe.setId(recipeId);
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
         when(recipeRepository.findById(recipeId)).thenReturn(Optional.of(recipe));
+        when(recipeRepository.addFavorite(userId, recipeId)).thenReturn(1);
+
+        RecipeDto result = recipeService.addRecipeToFavorites(userId, recipeId);
+
+        assertEquals("Recipe 1", result.getTitle());
+        verify(recipeRepository).addFavorite(userId, recipeId);
+        verify(recipePopularityIndex).favoriteAdded(recipeId);
+    }
+
+    @Test
+    void testRepeatedAdditionOfRecipeToFavoritesIsNotCounted() {
+        Long userId = 1L;
+        Long recipeId = 1L;
+        RecipeEntity recipe = new RecipeEntity("Recipe 1", "Category", "Desc");
+        recipe.setId(recipeId);
+
+        when(recipeRepository.findById(recipeId)).thenReturn(Optional.of(recipe));
+        when(recipeRepository.addFavorite(userId, recipeId)).thenReturn(0);
 
         recipeService.addRecipeToFavorites(userId, recipeId);
 
-        assertTrue(user.getFavoriteRecipes().contains(recipe));
-        verify(userRepository).findById(userId);
-        verify(recipeRepository).findById(recipeId);
-        verify(userRepository).save(user);
+        verify(recipePopularityIndex, never()).favoriteAdded(any());
     }
 
     @Test
-    void testRemovalOfRecipeFromFavorites() {
+    void testAdditionOfRecipeToFavoritesWhenRecipeNotFound() {
         Long userId = 1L;
         Long recipeId = 1L;
-        UserEntity user = new UserEntity();
-        user.setId(userId);
-        RecipeEntity recipe = new RecipeEntity();
+
+        when(recipeRepository.findById(recipeId)).thenReturn(Optional.empty());
+
+        assertThrows(NoSuchElementException.class, () -> recipeService.addRecipeToFavorites(userId, recipeId));
+        verify(recipeRepository, never()).addFavorite(any(), any());
+    }
+
+    @Test
+    void testAdditionOfRecipeToFavoritesWhenUserNotFound() {
+        Long userId = 1L;
+        Long recipeId = 1L;
+        RecipeEntity recipe = new RecipeEntity("Recipe 1", "Category", "Desc");
         recipe.setId(recipeId);
-        user.getFavoriteRecipes().add(recipe);
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
         when(recipeRepository.findById(recipeId)).thenReturn(Optional.of(recipe));
+        when(recipeRepository.addFavorite(userId, recipeId))
+                .thenThrow(new DataIntegrityViolationException("could not execute statement", new SQLException(
+                        "ERROR: insert or update on table \"favorite_recipe\" violates foreign key constraint "
+                                + "\"favorite_recipe_user_id_fkey\"\n"
+                                + "  Detail: Key (user_id)=(1) is not present in table \"users\".",
+                        SqlErrors.FOREIGN_KEY_VIOLATION)));
+
+        NoSuchElementException exception = assertThrows(NoSuchElementException.class,
+                () -> recipeService.addRecipeToFavorites(userId, recipeId));
+        assertEquals(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(userId), exception.getMessage());
+        verify(recipePopularityIndex, never()).favoriteAdded(any());
+    }
+
+    @Test
+    void testRemovalOfRecipeFromFavorites() {
+        Long userId = 1L;
+        Long recipeId = 1L;
+
+        when(recipeRepository.removeFavorite(userId, recipeId)).thenReturn(1);
 
         recipeService.removeRecipeFromFavorites(userId, recipeId);
 
-        assertFalse(user.getFavoriteRecipes().contains(recipe));
-        verify(userRepository).findById(userId);
-        verify(recipeRepository).findById(recipeId);
-        verify(userRepository).save(user);
+        verify(recipeRepository).removeFavorite(userId, recipeId);
+        verify(recipeRepository, never()).findById(any());
+        verify(recipePopularityIndex).favoriteRemoved(recipeId);
+    }
+
+    @Test
+    void testRemovalOfRecipeMissingFromFavoritesIsNotCounted() {
+        Long userId = 1L;
+        Long recipeId = 1L;
+
+        when(recipeRepository.removeFavorite(userId, recipeId)).thenReturn(0);
+
+        recipeService.removeRecipeFromFavorites(userId, recipeId);
+
+        verify(recipeRepository).removeFavorite(userId, recipeId);
+        verify(recipePopularityIndex, never()).favoriteRemoved(any());
     }
 
     @Test
     void testReturnOfUserFavorites() {
         Long userId = 1L;
-        UserEntity user = new UserEntity();
-        user.setId(userId);
+        List<RecipeSummaryDto> favorites = List.of(
+                new RecipeSummaryDto(3L, "Recipe 1", "Desc", "Category"),
+                new RecipeSummaryDto(7L, "Recipe 2", "Desc", "Category")
+        );
+
+        when(recipeRepository.findFavoritesAfter(userId, 0, Limit.of(2))).thenReturn(favorites);
 
-        RecipeEntity recipe1 = new RecipeEntity("Recipe 1", "Category", "Desc");
-        RecipeEntity recipe2 = new RecipeEntity("Recipe 2", "Category", "Desc");
+        FavoriteRecipePageResponse result = recipeService.getUserFavorites(userId, null, 2);
 
-        user.getFavoriteRecipes().addAll(Arrays.asList(recipe1, recipe2));
+        assertEquals(List.of("Recipe 1", "Recipe 2"), result.items().stream().map(RecipeSummaryDto::getTitle).toList());
+        assertEquals(7L, result.nextAfterId());
+    }
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+    @Test
+    void testReturnOfLastPageOfUserFavorites() {
+        Long userId = 1L;
 
-        List<RecipeDto> result = recipeService.getUserFavorites(userId);
+        when(recipeRepository.findFavoritesAfter(userId, 7, Limit.of(2)))
+                .thenReturn(List.of(new RecipeSummaryDto(9L, "Recipe 3", "Desc", "Category")));
 
-        assertEquals(2, result.size());
-        assertEquals(
-                new HashSet<>(List.of("Recipe 1", "Recipe 2")),
-                new HashSet<>(result.stream().map(RecipeDto::getTitle).toList())
-        );
-        verify(userRepository).findById(userId);
+        FavoriteRecipePageResponse result = recipeService.getUserFavorites(userId, 7L, 2);
+
+        assertEquals(1, result.items().size());
+        assertNull(result.nextAfterId());
     }
 
     @Test
-    void testAdditionOfRecipeToFavoritesWhenUserNotFound() {
+    void testSearchOfRecipesByUserProductsReturnsRequestedPage() {
         Long userId = 1L;
-        Long recipeId = 1L;
+        ProductEntity milk = product(1L, "milk");
 
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        RecipeEntity latte = recipe(10L, "Latte", ingredient(milk, "1"));
+        RecipeEntity porridge = recipe(11L, "Porridge", ingredient(milk, "2"));
+        RecipeEntity cocoa = recipe(12L, "Cocoa", ingredient(milk, "4"));
+        List.of(latte, porridge, cocoa).forEach(recipeProductIndex::register);
 
-        assertThrows(NoSuchElementException.class, () -> recipeService.addRecipeToFavorites(userId, recipeId));
-        verify(userRepository).findById(userId);
-        verify(recipeRepository, never()).findById(any());
-        verify(userRepository, never()).save(any());
+        when(usersProductRepository.findProductInfoByUserId(userId)).thenReturn(List.of(pantryItem(milk, "1")));
+        when(recipeRepository.findWithIngredientsByIdIn(List.of(11L, 12L))).thenReturn(List.of(cocoa, porridge));
+
+        List<RecipeDto> result = recipeService.searchRecipesByUserProducts(userId, 1, 2);
+
+        assertEquals(List.of("Porridge", "Cocoa"), result.stream().map(RecipeDto::getTitle).toList());
     }
 
     @Test
-    void testRemovalOfRecipeFromFavoritesWhenRecipeNotFound() {
+    void testSearchOfRecipesByUserProductsWithInvalidPage() {
+        assertThrows(IllegalArgumentException.class, () -> recipeService.searchRecipesByUserProducts(1L, -1, 5));
+        assertThrows(IllegalArgumentException.class, () -> recipeService.searchRecipesByUserProducts(1L, 0, 0));
+        verify(usersProductRepository, never()).findProductInfoByUserId(any());
+    }
+
+    @Test
+    void testSearchOfRecipesByUserProductsScoredInDatabase() {
         Long userId = 1L;
-        Long recipeId = 1L;
-        UserEntity user = new UserEntity();
-        user.setId(userId);
+        RecipeEntity latte = recipe(10L, "Latte");
+        RecipeEntity cocoa = recipe(12L, "Cocoa");
+        List<RecipeRepository.RecipeScore> scores = List.of(score(12L, 1.0), score(10L, 0.5));
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(recipeRepository.findById(recipeId)).thenReturn(Optional.empty());
+        doReturn(ScoringStrategy.DATABASE).when(recipeSearchProperties).scoring();
+        when(usersProductRepository.findProductInfoByUserId(userId)).thenReturn(List.of(pantryItem(product(1L, "milk"), "1")));
+        when(recipeRepository.findTopMatchesByUserId(userId, 5, 0)).thenReturn(scores);
+        when(recipeRepository.findWithIngredientsByIdIn(List.of(12L, 10L))).thenReturn(List.of(latte, cocoa));
+
+        List<RecipeDto> result = recipeService.searchRecipesByUserProducts(userId);
+
+        assertEquals(List.of("Cocoa", "Latte"), result.stream().map(RecipeDto::getTitle).toList());
+        verify(recipeProductIndex, never()).findCandidates(any());
+    }
+
+    @Test
+    void testSearchOfRecipesByUserProductsIsCachedUntilNewRecipeCouldEnter() {
+        Long userId = 1L;
+        ProductEntity milk = product(1L, "milk");
+        ProductEntity flour = product(2L, "flour");
+        RecipeEntity latte = recipe(10L, "Latte", ingredient(milk, "1"));
+        recipeProductIndex.register(latte);
+
+        when(usersProductRepository.findProductInfoByUserId(userId)).thenReturn(List.of(pantryItem(milk, "1")));
+        when(recipeRepository.findWithIngredientsByIdIn(List.of(10L))).thenReturn(List.of(latte));
+
+        recipeService.searchRecipesByUserProducts(userId);
+        recipeService.searchRecipesByUserProducts(userId);
+        verify(recipeRepository, times(1)).findWithIngredientsByIdIn(any());
+
+        RecipeEntity bread = recipe(11L, "Bread", ingredient(flour, "1"));
+        recipeSearchCache.onRecipeAdded(bread, (recipe, pantry) -> 0);
+        recipeService.searchRecipesByUserProducts(userId);
+        verify(recipeRepository, times(1)).findWithIngredientsByIdIn(any());
+
+        recipeSearchCache.onRecipeAdded(recipe(12L, "Milkshake", ingredient(milk, "2")), (recipe, pantry) -> 0.5);
+        recipeService.searchRecipesByUserProducts(userId);
+        verify(recipeRepository, times(2)).findWithIngredientsByIdIn(any());
+    }
+
+    @Test
+    void testSearchOfRecipesByUserProductsKernelsAgree() {
+        Long userId = 1L;
+        ProductEntity milk = product(1L, "milk");
+        ProductEntity eggs = product(2L, "eggs");
+        ProductEntity flour = product(3L, "flour");
+
+        RecipeEntity pancakes = recipe(10L, "Pancakes",
+                ingredient(milk, "0.3"), ingredient(eggs, "3"), ingredient(flour, "0.7"), ingredient(milk, "0.1"));
+        RecipeEntity omelette = recipe(11L, "Omelette", ingredient(eggs, "0.9"), ingredient(milk, "0.333"));
+        RecipeEntity crepes = recipe(12L, "Crepes", ingredient(flour, "0"), ingredient(milk, "7"));
+        List<RecipeEntity> recipes = List.of(pancakes, omelette, crepes);
+        recipes.forEach(recipeProductIndex::register);
+
+        doReturn(ScoringKernel.COMPARE).when(recipeSearchProperties).kernel();
+        when(usersProductRepository.findProductInfoByUserId(userId)).thenReturn(List.of(
+                pantryItem(milk, "0.1"), pantryItem(milk, "0.2"), pantryItem(eggs, "1"), pantryItem(flour, "0.5")));
+        when(recipeRepository.findWithIngredientsByIdIn(any())).thenReturn(recipes);
+
+        List<RecipeDto> result = recipeService.searchRecipesByUserProducts(userId);
+
+        assertEquals(List.of("Pancakes", "Omelette", "Crepes"), result.stream().map(RecipeDto::getTitle).toList());
+        assertEquals(null, meterRegistry.find("recipe.search.kernel.mismatches").counter());
+    }
+
+    @Test
+    void testSearchOfRecipesByUserProductsScoredInParallelShards() {
+        Long userId = 1L;
+        ProductEntity milk = product(1L, "milk");
+        List<RecipeEntity> recipes = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            RecipeEntity recipe = recipe(id, "Recipe " + id, ingredient(milk, String.valueOf(id)));
+            recipes.add(recipe);
+            recipeProductIndex.register(recipe);
+        }
+
+        doReturn(true).when(parallelRecipeScorer).shouldParallelize(any());
+        when(usersProductRepository.findProductInfoByUserId(userId)).thenReturn(List.of(pantryItem(milk, "2")));
+        when(recipeRepository.findWithIngredientsByIdIn(List.of(1L, 2L, 3L, 4L, 5L))).thenReturn(recipes.subList(0, 5));
+
+        List<RecipeDto> result = recipeService.searchRecipesByUserProducts(userId);
+
+        assertEquals(List.of("Recipe 1", "Recipe 2", "Recipe 3", "Recipe 4", "Recipe 5"),
+                result.stream().map(RecipeDto::getTitle).toList());
+        verify(parallelRecipeScorer).rank(any(), any(), eq(5));
+    }
+
+    @Test
+    void testLegacyKernelLoadsCandidatesInChunks() {
+        Long userId = 1L;
+        ProductEntity milk = product(1L, "milk");
+        Map<Long, RecipeEntity> recipes = new HashMap<>();
+        for (long id = 1; id <= 2500; id++) {
+            RecipeEntity recipe = recipe(id, "Recipe " + id, ingredient(milk, String.valueOf(id)));
+            recipes.put(id, recipe);
+            recipeProductIndex.register(recipe);
+        }
+
+        doReturn(ScoringKernel.LEGACY).when(recipeSearchProperties).kernel();
+        when(usersProductRepository.findProductInfoByUserId(userId)).thenReturn(List.of(pantryItem(milk, "2")));
+        List<Integer> chunkSizes = new ArrayList<>();
+        when(recipeRepository.findWithIngredientsByIdIn(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            chunkSizes.add(ids.size());
+            return ids.stream().map(recipes::get).toList();
+        });
+
+        List<RecipeDto> result = recipeService.searchRecipesByUserProducts(userId);
+
+        assertEquals(List.of("Recipe 1", "Recipe 2", "Recipe 3", "Recipe 4", "Recipe 5"),
+                result.stream().map(RecipeDto::getTitle).toList());
+        assertEquals(List.of(1000, 1000, 500, 5), chunkSizes);
+    }
+
+    private static RecipeRepository.RecipeRow row(Long id, String title, String productName, String quantity) {
+        RecipeRepository.RecipeRow row = mock(RecipeRepository.RecipeRow.class);
+        lenient().when(row.getId()).thenReturn(id);
+        lenient().when(row.getTitle()).thenReturn(title);
+        lenient().when(row.getProductName()).thenReturn(productName);
+        lenient().when(row.getQuantity()).thenReturn(quantity == null ? null : new BigDecimal(quantity));
+        return row;
+    }
+
+    private static RecipeRepository.RecipeScore score(Long recipeId, double value) {
+        RecipeRepository.RecipeScore score = mock(RecipeRepository.RecipeScore.class);
+        when(score.getRecipeId()).thenReturn(recipeId);
+        lenient().when(score.getScore()).thenReturn(value);
+        return score;
+    }
+
+    private static UserProductInfoDto pantryItem(ProductEntity product, String quantity) {
+        return new UserProductInfoDto(product.getId(), product.getName(), new BigDecimal(quantity), product.getUnit());
+    }
+
+    private static IngredientEntity ingredient(ProductEntity product, String quantity) {
+        IngredientEntity ingredient = new IngredientEntity();
+        ingredient.setProduct(product);
+        ingredient.setQuantity(new BigDecimal(quantity));
+        return ingredient;
+    }
 
-        assertThrows(NoSuchElementException.class, () -> recipeService.removeRecipeFromFavorites(userId, recipeId));
-        verify(userRepository).findById(userId);
-        verify(recipeRepository).findById(recipeId);
-        verify(userRepository, never()).save(any());
+    private static RecipeEntity recipe(Long id, String title, IngredientEntity... ingredients) {
+        RecipeEntity recipe = new RecipeEntity(title, "Category", "Desc");
+        recipe.setId(id);
+        recipe.setIngredients(Arrays.asList(ingredients));
+        return recipe;
     }
 }
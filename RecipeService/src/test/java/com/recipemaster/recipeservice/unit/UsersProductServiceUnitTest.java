@@ -2,20 +2,21 @@ package com.recipemaster.recipeservice.unit;
 
 import com.recipemaster.dto.UserProductInfoDto;
 import com.recipemaster.entities.ProductEntity;
-import com.recipemaster.entities.UserEntity;
-import com.recipemaster.entities.UsersProductEntity;
 import com.recipemaster.enums.ErrorMessage;
-import com.recipemaster.recipeservice.repository.UserRepository;
 import com.recipemaster.recipeservice.repository.UsersProductRepository;
 import com.recipemaster.recipeservice.service.ProductElasticService;
+import com.recipemaster.recipeservice.service.RecipeSearchCache;
 import com.recipemaster.recipeservice.service.UsersProductService;
+import com.recipemaster.recipeservice.utils.SqlErrors;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
@@ -25,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -34,25 +36,25 @@ class UsersProductServiceUnitTest {
     @Mock
     private UsersProductRepository usersProductRepository;
 
-    @Mock
-    private UserRepository userRepository;
-
     @InjectMocks
     private UsersProductService usersProductService;
 
     @Mock
     private ProductElasticService productElasticService;
 
+    @Mock
+    private RecipeSearchCache recipeSearchCache;
+
     @Test
     void testReturnOfUserProductsByUserIdWhenProductsAbsent() {
         Long userId = 1L;
 
-        when(usersProductRepository.findAllByUserId(userId)).thenReturn(List.of());
+        when(usersProductRepository.findProductInfoByUserId(userId)).thenReturn(List.of());
 
         List<UserProductInfoDto> result = usersProductService.getUserProductsByUserId(userId);
 
         assertTrue(result.isEmpty());
-        verify(usersProductRepository).findAllByUserId(userId);
+        verify(usersProductRepository).findProductInfoByUserId(userId);
     }
 
     @Test
@@ -61,31 +63,22 @@ class UsersProductServiceUnitTest {
         Long productId = 1L;
         UserProductInfoDto inputDto = new UserProductInfoDto(1L, "Milk", new BigDecimal("1"), "L");
 
-        UserEntity user = new UserEntity();
-        user.setId(userId);
-
         ProductEntity product = new ProductEntity();
         product.setId(productId);
-        product.setName("Milk");
+        product.setName("milk");
         product.setUnit("L");
 
-        UsersProductEntity existingProduct = new UsersProductEntity();
-        existingProduct.setUser(user);
-        existingProduct.setProduct(product);
-        existingProduct.setQuantity(new BigDecimal("0.5"));
-
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(productElasticService.findOrCreate(any(),any())).thenReturn(product);
-        when(usersProductRepository.findProductById(userId, productId)).thenReturn(Optional.of(existingProduct));
-        when(usersProductRepository.save(any(UsersProductEntity.class)))
-                .thenAnswer(inv -> inv.getArgument(0));
+        when(productElasticService.findOrCreate("milk", "L")).thenReturn(product);
+        when(usersProductRepository.addQuantity(userId, productId, new BigDecimal("1"))).thenReturn(new BigDecimal("1.5"));
 
         UserProductInfoDto result = usersProductService.addProduct(userId, inputDto);
 
-        assertEquals("Milk", result.getName());
+        assertEquals(productId, result.getId());
+        assertEquals("milk", result.getName());
         assertEquals(new BigDecimal("1.5"), result.getQuantity());
         assertEquals("L", result.getUnit());
-        verify(usersProductRepository).save(existingProduct);
+        verify(usersProductRepository).addQuantity(userId, productId, new BigDecimal("1"));
+        verify(recipeSearchCache).invalidateUser(userId);
     }
 
     @Test
@@ -93,19 +86,92 @@ class UsersProductServiceUnitTest {
         Long userId = 1L;
         UserProductInfoDto inputDto = new UserProductInfoDto(1L, "Milk", new BigDecimal("1"), "kg");
 
-        UserEntity user = new UserEntity();
-        user.setId(userId);
-
         ProductEntity product = new ProductEntity();
         product.setName("Milk");
         product.setUnit("L");
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
         when(productElasticService.findOrCreate(any(),any())).thenReturn(product);
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
                 () -> usersProductService.addProduct(userId, inputDto));
         assertEquals(ErrorMessage.INCORRECT_PRODUCT_UNIT.getMessage()+"L", exception.getMessage());
+        verify(usersProductRepository, never()).addQuantity(any(), any(), any());
+    }
+
+    @Test
+    void testAdditionOfProductWhenUserNotFound() {
+        Long userId = 1L;
+        UserProductInfoDto inputDto = new UserProductInfoDto(null, "Milk", new BigDecimal("1"), "L");
+
+        ProductEntity product = new ProductEntity();
+        product.setId(10L);
+        product.setName("milk");
+        product.setUnit("L");
+
+        when(productElasticService.findOrCreate("milk", "L")).thenReturn(product);
+        when(usersProductRepository.addQuantity(userId, 10L, new BigDecimal("1")))
+                .thenThrow(new DataIntegrityViolationException("could not execute statement", new SQLException(
+                        "ERROR: insert or update on table \"users_product\" violates foreign key constraint "
+                                + "\"users_product_user_id_fkey\"\n"
+                                + "  Detail: Key (user_id)=(1) is not present in table \"users\".",
+                        SqlErrors.FOREIGN_KEY_VIOLATION)));
+
+        NoSuchElementException exception = assertThrows(NoSuchElementException.class,
+                () -> usersProductService.addProduct(userId, inputDto));
+        assertEquals(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(userId), exception.getMessage());
+        verify(recipeSearchCache, never()).invalidateUser(any());
+    }
+
+    @Test
+    void testAdditionOfProductWhenStoredQuantityOverflows() {
+        Long userId = 1L;
+        UserProductInfoDto inputDto = new UserProductInfoDto(null, "Milk", new BigDecimal("9999999"), "L");
+
+        ProductEntity product = new ProductEntity();
+        product.setId(10L);
+        product.setName("milk");
+        product.setUnit("L");
+
+        when(productElasticService.findOrCreate("milk", "L")).thenReturn(product);
+        when(usersProductRepository.addQuantity(userId, 10L, new BigDecimal("9999999")))
+                .thenThrow(new DataIntegrityViolationException("could not execute statement",
+                        new SQLException("ERROR: numeric field overflow", SqlErrors.NUMERIC_VALUE_OUT_OF_RANGE)));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> usersProductService.addProduct(userId, inputDto));
+        assertEquals(ErrorMessage.INCORRECT_PRODUCT_QUANTITY.getMessage(), exception.getMessage());
+    }
+
+    @Test
+    void testOtherIntegrityViolationsAreNotReportedAsMissingUser() {
+        Long userId = 1L;
+        UserProductInfoDto inputDto = new UserProductInfoDto(null, "Milk", new BigDecimal("1"), "L");
+
+        ProductEntity product = new ProductEntity();
+        product.setId(10L);
+        product.setName("milk");
+        product.setUnit("L");
+
+        when(productElasticService.findOrCreate("milk", "L")).thenReturn(product);
+        when(usersProductRepository.addQuantity(userId, 10L, new BigDecimal("1")))
+                .thenThrow(new DataIntegrityViolationException("could not execute statement", new SQLException(
+                        "ERROR: insert or update on table \"users_product\" violates foreign key constraint "
+                                + "\"users_product_product_id_fkey\"\n"
+                                + "  Detail: Key (product_id)=(10) is not present in table \"product\".",
+                        SqlErrors.FOREIGN_KEY_VIOLATION)));
+
+        assertThrows(DataIntegrityViolationException.class, () -> usersProductService.addProduct(userId, inputDto));
+    }
+
+    @Test
+    void testQuantityOutsideTheColumnIsRejectedUpFront() {
+        UserProductInfoDto negative = new UserProductInfoDto(null, "Milk", new BigDecimal("-1"), "L");
+        UserProductInfoDto tooLarge = new UserProductInfoDto(null, "Milk", new BigDecimal("10000000"), "L");
+
+        assertThrows(IllegalArgumentException.class, () -> usersProductService.addProduct(1L, negative));
+        assertThrows(IllegalArgumentException.class, () -> usersProductService.updateProduct(1L, 10L, tooLarge));
+        verify(productElasticService, never()).findOrCreate(any(), any());
+        verify(usersProductRepository, never()).findProductById(any(), any());
     }
 
     @Test
@@ -131,5 +197,6 @@ class UsersProductServiceUnitTest {
         usersProductService.deleteProduct(userId, productId);
         
         verify(usersProductRepository).deleteByUserAndProductId(userId, productId);
+        verify(recipeSearchCache).invalidateUser(userId);
     }
 }
@@ -1,51 +1,19 @@
 #!/bin/bash
 
-curl -X PUT "http://elasticsearch:9200/products" -H 'Content-Type: application/json' -d'
+# The application reads and writes through the "products" alias. The reindex job
+# (POST /secured/admin/products/reindex) builds a new products_v* index from the same
+# settings file and swaps the alias over to it.
+if curl -sf -o /dev/null "http://elasticsearch:9200/_alias/products"; then
+  echo "Alias products already exists"
+  exit 0
+fi
+
+curl -X PUT "http://elasticsearch:9200/products_v1" -H 'Content-Type: application/json' \
+  -d @/scripts/products-index.json
+
+curl -X POST "http://elasticsearch:9200/_aliases" -H 'Content-Type: application/json' -d'
 {
-  "settings": {
-    "analysis": {
-      "filter": {
-        "russian_stop": {
-          "type":       "stop",
-          "stopwords":  "_russian_"
-        },
-        "ru_hunspell": {
-          "type":   "hunspell",
-          "locale": "ru_RU",
-          "dedup":  true
-        },
-        "ru_synonyms": {
-          "type":          "synonym_graph",
-          "synonyms_path": "synonyms/ru_synonyms.txt"
-        },
-        "russian_stemmer": {
-          "type":     "stemmer",
-          "language": "russian"
-        }
-      },
-      "analyzer": {
-        "ru_product_analyzer": {
-          "tokenizer": "standard",
-          "filter": [
-            "lowercase",
-            "russian_stop",
-            "ru_hunspell",
-            "ru_synonyms",
-            "russian_stemmer"
-          ]
-        }
-      }
-    }
-  },
-  "mappings": {
-    "properties": {
-      "name": {
-        "type":     "text",
-        "analyzer": "ru_product_analyzer"
-      },
-      "unit": {
-        "type":     "keyword"
-      }
-    }
-  }
-}'
\ No newline at end of file
+  "actions": [
+    { "add": { "index": "products_v1", "alias": "products" } }
+  ]
+}'
@@ -0,0 +1,2 @@
+CREATE INDEX IF NOT EXISTS idx_ingredient_product ON ingredient (product_id) INCLUDE (recipe_id, quantity);
+CREATE INDEX IF NOT EXISTS idx_users_product_user ON users_product (user_id);
@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS product_index_outbox
+(
+    id              BIGSERIAL PRIMARY KEY,
+    product_id      BIGINT      NOT NULL,
+    created_at      TIMESTAMPTZ NOT NULL DEFAULT now(),
+    attempts        INT         NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    last_error      TEXT
+);
+CREATE INDEX IF NOT EXISTS idx_product_index_outbox_next_attempt ON product_index_outbox (next_attempt_at, id);
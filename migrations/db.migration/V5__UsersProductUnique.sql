@@ -0,0 +1,21 @@
+-- Merge duplicate pantry rows into the oldest one before making (user_id, product_id) unique
+WITH merged AS (
+    SELECT min(id) AS keep_id, user_id, product_id, sum(quantity) AS quantity
+    FROM users_product
+    GROUP BY user_id, product_id
+    HAVING count(*) > 1
+), kept AS (
+    UPDATE users_product up
+    SET quantity = merged.quantity
+    FROM merged
+    WHERE up.id = merged.keep_id
+)
+DELETE FROM users_product up
+USING merged
+WHERE up.user_id = merged.user_id
+  AND up.product_id = merged.product_id
+  AND up.id <> merged.keep_id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_users_product_user_product ON users_product (user_id, product_id);
+-- Lookups by user_id alone are served by the leading column of the unique index
+DROP INDEX IF EXISTS idx_users_product_user;
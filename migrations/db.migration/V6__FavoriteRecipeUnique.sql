@@ -0,0 +1,10 @@
+-- Keep the oldest row of every duplicated favorite before making (user_id, recipe_id) unique
+DELETE FROM favorite_recipe fr
+USING favorite_recipe dup
+WHERE fr.user_id = dup.user_id
+  AND fr.recipe_id = dup.recipe_id
+  AND fr.id > dup.id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_favorite_recipe_user_recipe ON favorite_recipe (user_id, recipe_id);
+-- Lookups by user_id alone are served by the leading column of the unique index
+DROP INDEX IF EXISTS idx_favorite_user;
@@ -0,0 +1,7 @@
+-- Favorite counts per recipe, written in batches by RecipePopularityIndex and rebuilt from favorite_recipe on startup
+CREATE TABLE IF NOT EXISTS recipe_stats
+(
+    recipe_id      BIGINT PRIMARY KEY REFERENCES recipe (id) ON DELETE CASCADE,
+    favorite_count BIGINT      NOT NULL DEFAULT 0,
+    updated_at     TIMESTAMPTZ NOT NULL DEFAULT now()
+);
@@ -0,0 +1,6 @@
+-- Entries that kept failing are parked here instead of being retried forever
+ALTER TABLE product_index_outbox ADD COLUMN IF NOT EXISTS dead_lettered_at TIMESTAMPTZ;
+
+DROP INDEX IF EXISTS idx_product_index_outbox_next_attempt;
+CREATE INDEX IF NOT EXISTS idx_product_index_outbox_next_attempt ON product_index_outbox (next_attempt_at, id)
+    WHERE dead_lettered_at IS NULL;
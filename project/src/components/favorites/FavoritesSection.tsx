@@ -1,13 +1,15 @@
 import React, { useState, useEffect } from 'react';
-import { Heart, ChefHat } from 'lucide-react';
-import { Recipe } from '../../types';
+import { Heart } from 'lucide-react';
+import { RecipeSummary } from '../../types';
 import { getFavoriteRecipes, removeFromFavorites } from '../../services/api';
 import RecipeModal from '../recipes/RecipeModal';
 
 const FavoritesSection: React.FC = () => {
-  const [favorites, setFavorites] = useState<Recipe[]>([]);
+  const [favorites, setFavorites] = useState<RecipeSummary[]>([]);
   const [loading, setLoading] = useState(true);
-  const [selectedRecipe, setSelectedRecipe] = useState<Recipe | null>(null);
+  const [selectedRecipe, setSelectedRecipe] = useState<RecipeSummary | null>(null);
+  const [nextAfterId, setNextAfterId] = useState<number | null>(null);
+  const [loadingMore, setLoadingMore] = useState(false);
 
   useEffect(() => {
     loadFavorites();
@@ -15,8 +17,9 @@ const FavoritesSection: React.FC = () => {
 
   const loadFavorites = async () => {
     try {
-      const data = await getFavoriteRecipes();
-      setFavorites(data);
+      const page = await getFavoriteRecipes();
+      setFavorites(page.items);
+      setNextAfterId(page.nextAfterId ?? null);
     } catch (error) {
       console.error('Ошибка загрузки избранных рецептов:', error);
     } finally {
@@ -24,6 +27,20 @@ const FavoritesSection: React.FC = () => {
     }
   };
 
+  const loadMoreFavorites = async () => {
+    if (nextAfterId === null) return;
+    setLoadingMore(true);
+    try {
+      const page = await getFavoriteRecipes(nextAfterId);
+      setFavorites(prev => [...prev, ...page.items]);
+      setNextAfterId(page.nextAfterId ?? null);
+    } catch (error) {
+      console.error('Ошибка загрузки избранных рецептов:', error);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   const handleRemoveFromFavorites = async (recipeId: number) => {
     try {
       await removeFromFavorites(recipeId);
@@ -50,7 +67,7 @@ const FavoritesSection: React.FC = () => {
         <Heart className="w-8 h-8 text-red-500 mr-3 fill-current" />
         <h2 className="text-3xl font-bold text-gray-900">Любимые рецепты</h2>
         <span className="ml-4 bg-red-100 text-red-800 text-sm px-3 py-1 rounded-full">
-          {favorites.length}
+          {favorites.length}{nextAfterId !== null ? '+' : ''}
         </span>
       </div>
 
@@ -65,6 +82,18 @@ const FavoritesSection: React.FC = () => {
         ))}
       </div>
 
+      {nextAfterId !== null && (
+        <div className="text-center mt-8">
+          <button
+            onClick={loadMoreFavorites}
+            disabled={loadingMore}
+            className="bg-white border border-gray-300 text-gray-700 px-6 py-3 rounded-lg font-medium hover:bg-gray-50 transition-colors disabled:opacity-50"
+          >
+            {loadingMore ? 'Загрузка...' : 'Показать ещё'}
+          </button>
+        </div>
+      )}
+
       {favorites.length === 0 && (
         <div className="text-center py-12">
           <div className="w-24 h-24 bg-red-50 rounded-full flex items-center justify-center mx-auto mb-4">
@@ -88,7 +117,7 @@ const FavoritesSection: React.FC = () => {
 };
 
 interface FavoriteRecipeCardProps {
-  recipe: Recipe;
+  recipe: RecipeSummary;
   onRemove: () => void;
   onView: () => void;
 }
@@ -123,28 +152,6 @@ const FavoriteRecipeCard: React.FC<FavoriteRecipeCardProps> = ({
           </div>
         )}
 
-        <div className="mb-4">
-          <p className="text-sm text-gray-500 mb-2">
-            <ChefHat className="w-4 h-4 inline mr-1" />
-            Ингредиенты: {recipe.ingredients.length}
-          </p>
-          <div className="flex flex-wrap gap-1">
-            {recipe.ingredients.slice(0, 3).map((ingredient, index) => (
-              <span
-                key={index}
-                className="inline-block bg-green-100 text-green-800 text-xs px-2 py-1 rounded"
-              >
-                {ingredient.productName}
-              </span>
-            ))}
-            {recipe.ingredients.length > 3 && (
-              <span className="inline-block bg-gray-100 text-gray-600 text-xs px-2 py-1 rounded">
-                +{recipe.ingredients.length - 3} еще
-              </span>
-            )}
-          </div>
-        </div>
-
         <div className="flex space-x-2">
           <button
             onClick={onView}
@@ -1,9 +1,10 @@
 import React from 'react';
 import { X, Heart, Users } from 'lucide-react';
-import { Recipe } from '../../types';
+import { Ingredient, RecipeSummary } from '../../types';
 
 interface RecipeModalProps {
-  recipe: Recipe;
+  // Избранное приходит без ингредиентов
+  recipe: RecipeSummary & { ingredients?: Ingredient[] };
   onClose: () => void;
   isFavorite: boolean;
   onToggleFavorite: () => void;
@@ -55,29 +56,31 @@ const RecipeModal: React.FC<RecipeModalProps> = ({
             </div>
           )}
 
-          <div className="mb-6">
-            <div className="flex items-center mb-4">
-              <Users className="w-5 h-5 text-gray-500 mr-2" />
-              <h3 className="text-lg font-semibold text-gray-900">
-                Ингредиенты ({recipe.ingredients.length})
-              </h3>
-            </div>
-            <div className="grid grid-cols-1 md:grid-cols-2 gap-3">
-              {recipe.ingredients.map((ingredient, index) => (
-                <div
-                  key={index}
-                  className="bg-gray-50 rounded-lg p-3 flex justify-between items-center"
-                >
-                  <span className="font-medium text-gray-900">
-                    {ingredient.productName}
-                  </span>
-                  <span className="text-gray-600 text-sm">
-                    {ingredient.quantity} {ingredient.unit || ''}
-                  </span>
-                </div>
-              ))}
+          {recipe.ingredients && (
+            <div className="mb-6">
+              <div className="flex items-center mb-4">
+                <Users className="w-5 h-5 text-gray-500 mr-2" />
+                <h3 className="text-lg font-semibold text-gray-900">
+                  Ингредиенты ({recipe.ingredients.length})
+                </h3>
+              </div>
+              <div className="grid grid-cols-1 md:grid-cols-2 gap-3">
+                {recipe.ingredients.map((ingredient, index) => (
+                  <div
+                    key={index}
+                    className="bg-gray-50 rounded-lg p-3 flex justify-between items-center"
+                  >
+                    <span className="font-medium text-gray-900">
+                      {ingredient.productName}
+                    </span>
+                    <span className="text-gray-600 text-sm">
+                      {ingredient.quantity} {ingredient.unit || ''}
+                    </span>
+                  </div>
+                ))}
+              </div>
             </div>
-          </div>
+          )}
 
           <div className="flex justify-end space-x-3">
             <button
@@ -1,10 +1,9 @@
 import React, { useState, useEffect } from 'react';
 import { Heart, Search, ChefHat, Users, Plus } from 'lucide-react';
 import { Recipe } from '../../types';
-import { getRecipes, searchRecipesByProducts, addToFavorites, removeFromFavorites, createRecipe } from '../../services/api';
+import { getRecipes, searchRecipesByProducts, addToFavorites, removeFromFavorites, createRecipe, getFavoriteIds } from '../../services/api';
 import RecipeModal from './RecipeModal';
 import AddRecipeModal from './AddRecipeModal';
-import { getFavoriteRecipes } from '../../services/api';
 
 const RecipesSection: React.FC = () => {
   const [recipes, setRecipes] = useState<Recipe[]>([]);
@@ -14,44 +13,74 @@ const RecipesSection: React.FC = () => {
   const [favorites, setFavorites] = useState<Set<number>>(new Set());
   const [searchLoading, setSearchLoading] = useState(false);
   const [error, setError] = useState<string | null>(null);
+  const [nextAfterId, setNextAfterId] = useState<number | null>(null);
+  const [loadingMore, setLoadingMore] = useState(false);
 
   useEffect(() => {
     loadRecipes();
-    loadFavorites();
   }, []);
 
   const loadRecipes = async () => {
     try {
       setError(null);
-      const data = await getRecipes();
-      console.log('Loaded recipes:', data);
+      const page = await getRecipes();
+      console.log('Loaded recipes:', page);
       
-      // Проверяем, что data это массив
-      if (Array.isArray(data)) {
-        setRecipes(data);
+      // Проверяем, что в ответе есть массив рецептов
+      if (Array.isArray(page?.items)) {
+        setRecipes(page.items);
+        setNextAfterId(page.nextAfterId ?? null);
+        loadFavorites(page.items);
       } else {
-        console.error('Recipes data is not an array:', data);
+        console.error('Recipes page has no items array:', page);
         setRecipes([]);
+        setNextAfterId(null);
         setError('Неверный формат данных рецептов');
       }
     } catch (error) {
       console.error('Ошибка загрузки рецептов:', error);
       setError('Ошибка загрузки рецептов: ' + (error instanceof Error ? error.message : 'Неизвестная ошибка'));
       setRecipes([]);
+      setNextAfterId(null);
     } finally {
       setLoading(false);
     }
   };
+
+  const loadMoreRecipes = async () => {
+    if (nextAfterId === null) return;
+    setLoadingMore(true);
+    try {
+      const page = await getRecipes({ afterId: nextAfterId });
+      // Рецепт, созданный на этой странице, уже показан первым
+      setRecipes(prev => {
+        const shown = new Set(prev.map(recipe => recipe.id));
+        return [...prev, ...page.items.filter(recipe => !shown.has(recipe.id))];
+      });
+      setNextAfterId(page.nextAfterId ?? null);
+      loadFavorites(page.items);
+    } catch (error) {
+      console.error('Ошибка загрузки рецептов:', error);
+      setError('Ошибка загрузки рецептов: ' + (error instanceof Error ? error.message : 'Неизвестная ошибка'));
+    } finally {
+      setLoadingMore(false);
+    }
+  };
   
-const loadFavorites = async () => {
-  try {
-    const data: Recipe[] = await getFavoriteRecipes();
-    const favoriteIds = new Set(data.map(recipe => recipe.id));
-    setFavorites(favoriteIds);
-  } catch (error) {
-    console.error('Ошибка загрузки избранного:', error);
-  }
-};
+  // Спрашиваем только про рецепты, которые сейчас на экране
+  const loadFavorites = async (shown: Recipe[]) => {
+    try {
+      const ids = shown.map(recipe => recipe.id);
+      const favoriteIds = new Set(await getFavoriteIds(ids));
+      setFavorites(prev => {
+        const next = new Set(prev);
+        ids.forEach(id => (favoriteIds.has(id) ? next.add(id) : next.delete(id)));
+        return next;
+      });
+    } catch (error) {
+      console.error('Ошибка загрузки избранного:', error);
+    }
+  };
 
   const handleSearchByProducts = async () => {
     setSearchLoading(true);
@@ -65,6 +94,8 @@ const loadFavorites = async () => {
       // Проверяем, что data это массив
       if (Array.isArray(data)) {
         setRecipes(data);
+        setNextAfterId(null);
+        loadFavorites(data);
         if (data.length === 0) {
           setError('По вашим продуктам рецепты не найдены');
         }
@@ -178,6 +209,18 @@ const loadFavorites = async () => {
         ))}
       </div>
 
+      {nextAfterId !== null && (
+        <div className="text-center mt-8">
+          <button
+            onClick={loadMoreRecipes}
+            disabled={loadingMore}
+            className="bg-white border border-gray-300 text-gray-700 px-6 py-3 rounded-lg font-medium hover:bg-gray-50 transition-colors disabled:opacity-50"
+          >
+            {loadingMore ? 'Загрузка...' : 'Показать ещё'}
+          </button>
+        </div>
+      )}
+
       {recipes.length === 0 && !error && (
         <div className="text-center py-12">
           <div className="w-24 h-24 bg-gray-100 rounded-full flex items-center justify-center mx-auto mb-4">
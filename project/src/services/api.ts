@@ -1,3 +1,5 @@
+import { Page, Recipe, RecipeSummary } from '../types';
+
 const API_BASE_URL = 'http://localhost:8189';
 
 let authToken: string | null = localStorage.getItem('authToken');
@@ -107,9 +109,16 @@ export const deleteProduct = async (id: number) => {
 };
 
 // Recipes API
-export const getRecipes = async (category?: string) => {
-  const params = category ? `?category=${encodeURIComponent(category)}` : '';
-  return apiRequest(`/secured/recipes${params}`);
+export const getRecipes = async (params: {
+  category?: string;
+  afterId?: number | null;
+  size?: number;
+} = {}): Promise<Page<Recipe>> => {
+  const query = new URLSearchParams();
+  if (params.category) query.set('category', params.category);
+  if (params.afterId != null) query.set('afterId', String(params.afterId));
+  if (params.size) query.set('size', String(params.size));
+  return apiRequest(`/secured/recipes?${query.toString()}`);
 };
 
 export const createRecipe = async (recipe: {
@@ -144,6 +153,14 @@ export const removeFromFavorites = async (recipeId: number) => {
   });
 };
 
-export const getFavoriteRecipes = async () => {
-  return apiRequest('/secured/recipes/favorites');
-};
\ No newline at end of file
+export const getFavoriteRecipes = async (afterId?: number | null): Promise<Page<RecipeSummary>> => {
+  const params = new URLSearchParams();
+  if (afterId != null) params.set('afterId', String(afterId));
+  return apiRequest(`/secured/recipes/favorites?${params.toString()}`);
+};
+
+// Which of the given recipes are favorites; enough to draw hearts on the recipes on screen
+export const getFavoriteIds = async (recipeIds: number[]): Promise<number[]> => {
+  if (recipeIds.length === 0) return [];
+  return apiRequest(`/secured/recipes/favorites/ids?recipeIds=${recipeIds.join(',')}`);
+};
@@ -35,9 +35,21 @@ export interface Recipe {
   ingredients: Ingredient[];
 }
 
+export interface RecipeSummary {
+  id: number;
+  title: string;
+  description?: string;
+  category?: string;
+}
+
 export interface RecipeInput {
   title: string;
   description?: string;
   category?: string;
   ingredients: Ingredient[];
-}
\ No newline at end of file
+}
+
+export interface Page<T> {
+  items: T[];
+  nextAfterId: number | null;
+}